@@ -77,15 +77,11 @@ public class BasicEncryptionDialog extends JDialog {
                 // 根据输入类型处理
                 if (inputType.equals("ASCII字符串")) {
                     // ASCII字符串处理
-                    List<Integer> blocks = SAESUtils.asciiToBlocks(plaintext);
-                    List<Integer> encryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : blocks) {
-                        int[] resultArray = SAESCore.encrypt(block, key1Value);
-                        encryptedBlocks.add(resultArray[0]);
-                        // 只显示最后一个块的中间结果
-                        intermediateField.setText(String.format("%04X", resultArray[1]));
-                    }
+                    List<Integer> blocks = SAESUtils.textToBlocks(plaintext);
+                    List<Integer> encryptedBlocks = SAESUtils.encryptECB(blocks, key1Value);
+                    // 只显示最后一个块的中间结果（由参考实现给出）
+                    int lastBlock = blocks.get(blocks.size() - 1);
+                    intermediateField.setText(String.format("%04X", SAESCore.encrypt(lastBlock, key1Value)[1]));
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -101,9 +97,9 @@ public class BasicEncryptionDialog extends JDialog {
                     }
                     
                     int plaintextValue = Integer.parseInt(plaintext, 16);
-                    int[] resultArray = SAESCore.encrypt(plaintextValue, key1Value);
-                    int ciphertextValue = resultArray[0];
-                    intermediateField.setText(String.format("%04X", resultArray[1]));
+                    int ciphertextValue = SAESEngines.single().encryptBlock(plaintextValue, key1Value);
+                    // 第一轮中间结果由参考实现给出
+                    intermediateField.setText(String.format("%04X", SAESCore.encrypt(plaintextValue, key1Value)[1]));
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -152,15 +148,11 @@ public class BasicEncryptionDialog extends JDialog {
                 if (inputType.equals("ASCII字符串")) {
                     // 输入是ASCII字符串
                     List<Integer> encryptedBlocks = SAESUtils.asciiToBlocks(ciphertext);
-                    List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : encryptedBlocks) {
-                        decryptedBlocks.add(SAESCore.decrypt(block, key1Value));
-                    }
+                    List<Integer> decryptedBlocks = SAESUtils.decryptECB(encryptedBlocks, key1Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
-                        result = SAESUtils.blocksToAscii(decryptedBlocks);
+                        result = SAESUtils.blocksToText(decryptedBlocks);
                     } else {
                         result = SAESUtils.blocksToHex(decryptedBlocks);
                     }
@@ -174,7 +166,7 @@ public class BasicEncryptionDialog extends JDialog {
                         }
                         
                         int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                        int plaintextValue = SAESCore.decrypt(ciphertextValue, key1Value);
+                        int plaintextValue = SAESEngines.single().decryptBlock(ciphertextValue, key1Value);
                         
                         // 转换为ASCII字符串
                         result = String.valueOf((char)((plaintextValue >> 8) & 0xFF)) + 
@@ -185,11 +177,7 @@ public class BasicEncryptionDialog extends JDialog {
                         if (ciphertext.length() > 4 && ciphertext.length() % 4 == 0) {
                             // 多块数据
                             List<Integer> encryptedBlocks = SAESUtils.hexToBlocks(ciphertext);
-                            List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                            
-                            for (Integer block : encryptedBlocks) {
-                                decryptedBlocks.add(SAESCore.decrypt(block, key1Value));
-                            }
+                            List<Integer> decryptedBlocks = SAESUtils.decryptECB(encryptedBlocks, key1Value);
                             
                             result = SAESUtils.blocksToHex(decryptedBlocks);
                         } else {
@@ -200,7 +188,7 @@ public class BasicEncryptionDialog extends JDialog {
                             }
                             
                             int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                            int plaintextValue = SAESCore.decrypt(ciphertextValue, key1Value);
+                            int plaintextValue = SAESEngines.single().decryptBlock(ciphertextValue, key1Value);
                             
                             result = String.format("%04X", plaintextValue);
                         }
@@ -29,11 +29,11 @@ public class CBCModeDialog extends JDialog {
         plaintextField = new JTextField();
         add(plaintextField);
         
-        add(new JLabel("密钥 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         keyField = new JTextField();
         add(keyField);
         
-        add(new JLabel("初始化向量IV (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("初始化向量IV (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         ivField = new JTextField();
         add(ivField);
         
@@ -63,6 +63,16 @@ public class CBCModeDialog extends JDialog {
                 String inputType = (String) inputTypeComboBox.getSelectedItem();
                 String outputType = (String) outputTypeComboBox.getSelectedItem();
                 
+                // 密钥、IV留空时用SAESDrbg生成并回填，解密时需要
+                if (key.isEmpty()) {
+                    key = String.format("%04X", SAESDrbg.newKey());
+                    keyField.setText(key);
+                }
+                if (iv.isEmpty()) {
+                    iv = String.format("%04X", SAESDrbg.newIv());
+                    ivField.setText(iv);
+                }
+                
                 // 验证输入
                 if (key.length() != 4) {
                     JOptionPane.showMessageDialog(CBCModeDialog.this, "请输入16位16进制密钥（4个16进制字符）");
@@ -83,7 +93,7 @@ public class CBCModeDialog extends JDialog {
                 // 根据输入类型处理
                 if (inputType.equals("ASCII字符串")) {
                     // ASCII字符串处理
-                    List<Integer> blocks = SAESUtils.asciiToBlocks(plaintext);
+                    List<Integer> blocks = SAESUtils.textToBlocks(plaintext);
                     List<Integer> encryptedBlocks = SAESUtils.encryptCBC(blocks, keyValue, ivValue);
                     
                     // 根据输出类型格式化结果
@@ -164,7 +174,7 @@ public class CBCModeDialog extends JDialog {
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
-                        result = SAESUtils.blocksToAscii(decryptedBlocks);
+                        result = SAESUtils.blocksToText(decryptedBlocks);
                     } else {
                         result = SAESUtils.blocksToHex(decryptedBlocks);
                     }
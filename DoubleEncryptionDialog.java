@@ -29,11 +29,11 @@ public class DoubleEncryptionDialog extends JDialog {
         plaintextField = new JTextField();
         add(plaintextField);
         
-        add(new JLabel("密钥1 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥1 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         key1Field = new JTextField();
         add(key1Field);
         
-        add(new JLabel("密钥2 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥2 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         key2Field = new JTextField();
         add(key2Field);
         
@@ -63,6 +63,16 @@ public class DoubleEncryptionDialog extends JDialog {
                 String inputType = (String) inputTypeComboBox.getSelectedItem();
                 String outputType = (String) outputTypeComboBox.getSelectedItem();
                 
+                // 密钥留空时用SAESDrbg生成并回填，解密时需要
+                if (key1.isEmpty()) {
+                    key1 = String.format("%04X", SAESDrbg.newKey());
+                    key1Field.setText(key1);
+                }
+                if (key2.isEmpty()) {
+                    key2 = String.format("%04X", SAESDrbg.newKey());
+                    key2Field.setText(key2);
+                }
+                
                 // 验证输入
                 if (key1.length() != 4 || key2.length() != 4) {
                     JOptionPane.showMessageDialog(DoubleEncryptionDialog.this, "请输入16位16进制密钥（4个16进制字符）");
@@ -78,12 +88,8 @@ public class DoubleEncryptionDialog extends JDialog {
                 // 根据输入类型处理
                 if (inputType.equals("ASCII字符串")) {
                     // ASCII字符串处理
-                    List<Integer> blocks = SAESUtils.asciiToBlocks(plaintext);
-                    List<Integer> encryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : blocks) {
-                        encryptedBlocks.add(SAESCore.doubleEncrypt(block, key1Value, key2Value));
-                    }
+                    List<Integer> blocks = SAESUtils.textToBlocks(plaintext);
+                    List<Integer> encryptedBlocks = SAESUtils.doubleEncryptECB(blocks, key1Value, key2Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -99,7 +105,7 @@ public class DoubleEncryptionDialog extends JDialog {
                     }
                     
                     int plaintextValue = Integer.parseInt(plaintext, 16);
-                    int ciphertextValue = SAESCore.doubleEncrypt(plaintextValue, key1Value, key2Value);
+                    int ciphertextValue = SAESUtils.doubleEncrypt(plaintextValue, key1Value, key2Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -150,15 +156,11 @@ public class DoubleEncryptionDialog extends JDialog {
                 if (inputType.equals("ASCII字符串")) {
                     // 输入是ASCII字符串
                     List<Integer> encryptedBlocks = SAESUtils.asciiToBlocks(ciphertext);
-                    List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : encryptedBlocks) {
-                        decryptedBlocks.add(SAESCore.doubleDecrypt(block, key1Value, key2Value));
-                    }
+                    List<Integer> decryptedBlocks = SAESUtils.doubleDecryptECB(encryptedBlocks, key1Value, key2Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
-                        result = SAESUtils.blocksToAscii(decryptedBlocks);
+                        result = SAESUtils.blocksToText(decryptedBlocks);
                     } else {
                         result = SAESUtils.blocksToHex(decryptedBlocks);
                     }
@@ -172,7 +174,7 @@ public class DoubleEncryptionDialog extends JDialog {
                         }
                         
                         int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                        int plaintextValue = SAESCore.doubleDecrypt(ciphertextValue, key1Value, key2Value);
+                        int plaintextValue = SAESUtils.doubleDecrypt(ciphertextValue, key1Value, key2Value);
                         
                         // 转换为ASCII字符串
                         result = String.valueOf((char)((plaintextValue >> 8) & 0xFF)) + 
@@ -183,11 +185,7 @@ public class DoubleEncryptionDialog extends JDialog {
                         if (ciphertext.length() > 4 && ciphertext.length() % 4 == 0) {
                             // 多块数据
                             List<Integer> encryptedBlocks = SAESUtils.hexToBlocks(ciphertext);
-                            List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                            
-                            for (Integer block : encryptedBlocks) {
-                                decryptedBlocks.add(SAESCore.doubleDecrypt(block, key1Value, key2Value));
-                            }
+                            List<Integer> decryptedBlocks = SAESUtils.doubleDecryptECB(encryptedBlocks, key1Value, key2Value);
                             
                             result = SAESUtils.blocksToHex(decryptedBlocks);
                         } else {
@@ -198,7 +196,7 @@ public class DoubleEncryptionDialog extends JDialog {
                             }
                             
                             int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                            int plaintextValue = SAESCore.doubleDecrypt(ciphertextValue, key1Value, key2Value);
+                            int plaintextValue = SAESUtils.doubleDecrypt(ciphertextValue, key1Value, key2Value);
                             
                             result = String.format("%04X", plaintextValue);
                         }
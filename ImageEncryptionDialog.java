@@ -0,0 +1,189 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.imageio.ImageIO;
+import javax.swing.*;
+
+public class ImageEncryptionDialog extends JDialog {
+    private JTextField keyField, ivField;
+    private JComboBox<SAESMode> modeComboBox;
+    private JButton openButton, encryptButton, decryptButton, saveButton;
+    private JLabel statusLabel;
+    private Preview preview;
+    private BufferedImage image;
+
+    public ImageEncryptionDialog(Frame owner) {
+        super(owner, "图像加密/解密", true);
+        setSize(800, 600);
+        setLayout(new BorderLayout(10, 10));
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        // 添加组件
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        openButton = new JButton("打开图片");
+        openButton.addActionListener(e -> openImage());
+        controls.add(openButton);
+
+        controls.add(new JLabel("模式:"));
+        modeComboBox = new JComboBox<>(SAESMode.values());
+        controls.add(modeComboBox);
+
+        controls.add(new JLabel("密钥:"));
+        keyField = new JTextField(5);
+        controls.add(keyField);
+
+        controls.add(new JLabel("IV:"));
+        ivField = new JTextField(5);
+        controls.add(ivField);
+
+        encryptButton = new JButton("加密");
+        encryptButton.addActionListener(e -> run(false));
+        controls.add(encryptButton);
+
+        decryptButton = new JButton("解密");
+        decryptButton.addActionListener(e -> run(true));
+        controls.add(decryptButton);
+
+        saveButton = new JButton("保存PNG");
+        saveButton.addActionListener(e -> saveImage());
+        controls.add(saveButton);
+        add(controls, BorderLayout.NORTH);
+
+        preview = new Preview();
+        add(preview, BorderLayout.CENTER);
+
+        statusLabel = new JLabel("请打开一张图片（密钥、IV留空时加密自动生成）");
+        add(statusLabel, BorderLayout.SOUTH);
+        setButtonsEnabled(true);
+    }
+
+    // 按比例缩放显示图像；加解密过程中栅格被原地修改，每完成一条带重绘一次
+    private class Preview extends JComponent {
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (image == null) {
+                return;
+            }
+            double scale = Math.min(1.0, Math.min(getWidth() / (double) image.getWidth(),
+                    getHeight() / (double) image.getHeight()));
+            int w = (int) (image.getWidth() * scale);
+            int h = (int) (image.getHeight() * scale);
+            g.drawImage(image, (getWidth() - w) / 2, (getHeight() - h) / 2, w, h, null);
+        }
+    }
+
+    private void openImage() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            BufferedImage loaded = ImageIO.read(chooser.getSelectedFile());
+            if (loaded == null) {
+                JOptionPane.showMessageDialog(this, "无法识别的图片格式");
+                return;
+            }
+            image = SAESImageCipher.toByteImage(loaded);
+            statusLabel.setText(String.format("%s  %dx%d", chooser.getSelectedFile().getName(),
+                    image.getWidth(), image.getHeight()));
+            setButtonsEnabled(true);
+            preview.repaint();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "读取图片时出现错误: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    private void saveImage() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("encrypted.png"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            // 必须用无损格式，否则无法解密还原
+            ImageIO.write(image, "png", chooser.getSelectedFile());
+            statusLabel.setText("已保存: " + chooser.getSelectedFile().getName());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, "保存图片时出现错误: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    // 在后台线程中加解密，事件分派线程只负责按条带刷新预览
+    private void run(boolean decrypt) {
+        String key = keyField.getText().trim();
+        String iv = ivField.getText().trim();
+
+        // 加密时密钥、IV留空则用SAESDrbg生成并回填
+        if (!decrypt && key.isEmpty()) {
+            key = String.format("%04X", SAESDrbg.newKey());
+            keyField.setText(key);
+        }
+        if (!decrypt && iv.isEmpty()) {
+            iv = String.format("%04X", SAESDrbg.newIv());
+            ivField.setText(iv);
+        }
+
+        // 验证输入
+        if (key.length() != 4 || iv.length() != 4) {
+            JOptionPane.showMessageDialog(this, "请输入16位16进制密钥和IV（4个16进制字符）");
+            return;
+        }
+        int keyValue, ivValue;
+        try {
+            keyValue = Integer.parseInt(key, 16);
+            ivValue = Integer.parseInt(iv, 16);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "请输入有效的16进制数");
+            return;
+        }
+        SAESMode mode = (SAESMode) modeComboBox.getSelectedItem();
+        BufferedImage target = image;
+        setButtonsEnabled(false);
+        statusLabel.setText(decrypt ? "正在解密..." : "正在加密...");
+
+        new SwingWorker<Long, int[]>() {
+            @Override
+            protected Long doInBackground() {
+                long t0 = System.nanoTime();
+                SAESImageCipher.BandListener listener = (y0, y1) -> publish(new int[]{y0, y1});
+                if (decrypt) {
+                    SAESImageCipher.decrypt(target, mode, keyValue, ivValue, listener);
+                } else {
+                    SAESImageCipher.encrypt(target, mode, keyValue, ivValue, listener);
+                }
+                return System.nanoTime() - t0;
+            }
+
+            @Override
+            protected void process(List<int[]> bands) {
+                preview.repaint();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    long elapsed = get();
+                    statusLabel.setText(String.format("%s %s 完成，用时 %.1f ms", mode, decrypt ? "解密" : "加密",
+                            elapsed / 1e6));
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(ImageEncryptionDialog.this, "处理过程中出现错误: " + ex.getMessage());
+                    ex.printStackTrace();
+                }
+                setButtonsEnabled(true);
+                preview.repaint();
+            }
+        }.execute();
+    }
+
+    private void setButtonsEnabled(boolean enabled) {
+        openButton.setEnabled(enabled);
+        encryptButton.setEnabled(enabled && image != null);
+        decryptButton.setEnabled(enabled && image != null);
+        saveButton.setEnabled(enabled && image != null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,389 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 批量作业服务：调用方提交(密钥, 模式, IV, 数据)请求，得到CompletableFuture
+// 提交进入有界队列，队列满时submit阻塞（或offer超时返回null），形成反压
+// 调度线程每次取出一批请求，按密钥分组，每组交给一个工作线程：
+//   同一密钥下的ECB加密与CTR密钥流合并为一次批量加密，ECB解密与CBC解密合并为一次批量解密，
+//   密码本/轮密钥每批每个密钥只准备一次；CBC加密前后块相互依赖，逐块处理
+//   双重/三重密钥请求直接调用SAESUtils对应方法
+// 工作线程优先使用虚拟线程（运行环境支持时），否则使用与CPU核数相同的平台线程池
+// 每个请求从提交到完成的延迟记入SAESMetrics，操作名为"batch.<模式>.encrypt|decrypt"
+public class SAESBatchService implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 16384;
+    // 调度线程一次最多取出的请求数
+    static final int MAX_BATCH = 4096;
+    // 同时在执行的分组数上限，与队列一起限制内存
+    static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final BlockingQueue<Request> queue;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    // 单个请求
+    public static final class Request {
+        final boolean encrypt;
+        final SAESMode mode;
+        final int iv;
+        final int[] blocks;
+        final int[] keys;
+        final CompletableFuture<int[]> result = new CompletableFuture<>();
+        long submitted;
+
+        private Request(boolean encrypt, SAESMode mode, int iv, int[] blocks, int[] keys) {
+            if (keys.length < 1 || keys.length > 3) {
+                throw new IllegalArgumentException("密钥个数必须为1到3个");
+            }
+            if (keys.length > 1 && mode == SAESMode.CTR) {
+                throw new IllegalArgumentException("CTR模式只支持单个密钥");
+            }
+            // CTR密钥流在批处理中自行生成，不经过encryptBlocks，这里同样检查计数器范围
+            if (mode == SAESMode.CTR) {
+                SAESUtils.checkCtrRange(0, blocks.length);
+            }
+            this.encrypt = encrypt;
+            this.mode = mode;
+            this.iv = iv & 0xFFFF;
+            this.blocks = blocks.clone();
+            this.keys = keys.clone();
+        }
+
+        // 数据会被复制，调用方之后可以继续修改原数组
+        public static Request encrypt(SAESMode mode, int iv, int[] blocks, int... keys) {
+            return new Request(true, mode, iv, blocks, keys);
+        }
+
+        public static Request decrypt(SAESMode mode, int iv, int[] blocks, int... keys) {
+            return new Request(false, mode, iv, blocks, keys);
+        }
+
+        String operation() {
+            return "batch." + mode.name().toLowerCase() + (encrypt ? ".encrypt" : ".decrypt");
+        }
+    }
+
+    public SAESBatchService() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public SAESBatchService(int queueCapacity, int maxInFlight) {
+        if (queueCapacity <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("队列容量与并发分组数必须为正数");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.workers = newWorkerExecutor();
+        this.dispatcher = new Thread(this::dispatch, "saes-batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    // JDK 21起使用虚拟线程，通过反射调用以便在更早的JDK上编译运行
+    static ExecutorService newWorkerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "saes-batch-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public boolean usesVirtualThreads() {
+        return !(workers instanceof java.util.concurrent.ThreadPoolExecutor);
+    }
+
+    // 提交请求，队列满时阻塞
+    public CompletableFuture<int[]> submit(Request request) throws InterruptedException {
+        checkOpen();
+        request.submitted = SAESMetrics.start();
+        queue.put(request);
+        recheckOpen(request);
+        return request.result;
+    }
+
+    // 提交请求，队列在超时前仍满则返回null
+    public CompletableFuture<int[]> offer(Request request, long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen();
+        request.submitted = SAESMetrics.start();
+        if (!queue.offer(request, timeout, unit)) {
+            return null;
+        }
+        recheckOpen(request);
+        return request.result;
+    }
+
+    public CompletableFuture<int[]> encrypt(SAESMode mode, int iv, int[] blocks, int... keys) throws InterruptedException {
+        return submit(Request.encrypt(mode, iv, blocks, keys));
+    }
+
+    public CompletableFuture<int[]> decrypt(SAESMode mode, int iv, int[] blocks, int... keys) throws InterruptedException {
+        return submit(Request.decrypt(mode, iv, blocks, keys));
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("批量作业服务已关闭");
+        }
+    }
+
+    // checkOpen与入队之间服务可能已关闭，调度线程也可能已退出；此时请求若仍在队列中则取回并以失败结束
+    private void recheckOpen(Request request) {
+        if (closed && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("批量作业服务已关闭"));
+        }
+    }
+
+    // ---- 调度 ----
+
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                Map<Integer, List<Request>> groups = new HashMap<>();
+                for (Request request : batch) {
+                    // 多密钥请求各自成组，键取负数以免与单密钥冲突
+                    int groupKey = request.keys.length == 1 ? request.keys[0] & 0xFFFF : -1 - groups.size();
+                    groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(request);
+                }
+                batch.clear();
+                for (List<Request> group : groups.values()) {
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            process(group);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private static void process(List<Request> group) {
+        try {
+            if (group.get(0).keys.length == 1) {
+                processSingleKey(group.get(0).keys[0], group);
+            } else {
+                for (Request request : group) {
+                    complete(request, multiKey(request), SAESEngines.bulk().name());
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Request request : group) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // 同一密钥的一组请求：合并为至多一次批量加密和一次批量解密
+    private static void processSingleKey(int key, List<Request> group) {
+        SAESEngine bulk = SAESEngines.bulk();
+        int encryptLength = 0;
+        int decryptLength = 0;
+        for (Request r : group) {
+            if (usesBulkEncrypt(r)) {
+                encryptLength += r.blocks.length;
+            } else if (usesBulkDecrypt(r)) {
+                decryptLength += r.blocks.length;
+            }
+        }
+        int[] encryptInput = new int[encryptLength];
+        int[] decryptInput = new int[decryptLength];
+        int e = 0;
+        int d = 0;
+        for (Request r : group) {
+            if (r.mode == SAESMode.CTR) {
+                for (int i = 0; i < r.blocks.length; i++) {
+                    encryptInput[e++] = (r.iv + i) & 0xFFFF;
+                }
+            } else if (usesBulkEncrypt(r)) {
+                System.arraycopy(r.blocks, 0, encryptInput, e, r.blocks.length);
+                e += r.blocks.length;
+            } else if (usesBulkDecrypt(r)) {
+                System.arraycopy(r.blocks, 0, decryptInput, d, r.blocks.length);
+                d += r.blocks.length;
+            }
+        }
+        bulk.encrypt(key, encryptInput, 0, encryptLength);
+        bulk.decrypt(key, decryptInput, 0, decryptLength);
+
+        SAESEngine single = SAESEngines.single();
+        e = 0;
+        d = 0;
+        for (Request r : group) {
+            int[] blocks = r.blocks;
+            String engine = bulk.name();
+            if (r.mode == SAESMode.CTR) {
+                for (int i = 0; i < blocks.length; i++) {
+                    blocks[i] ^= encryptInput[e++];
+                }
+            } else if (r.mode == SAESMode.ECB && r.encrypt) {
+                System.arraycopy(encryptInput, e, blocks, 0, blocks.length);
+                e += blocks.length;
+            } else if (r.mode == SAESMode.ECB) {
+                System.arraycopy(decryptInput, d, blocks, 0, blocks.length);
+                d += blocks.length;
+            } else if (r.encrypt) {
+                // CBC加密
+                int previous = r.iv;
+                for (int i = 0; i < blocks.length; i++) {
+                    previous = single.encryptBlock(blocks[i] ^ previous, key);
+                    blocks[i] = previous;
+                }
+                engine = single.name();
+            } else {
+                // CBC解密：批量解密结果与前一个密文块异或
+                int previous = r.iv;
+                for (int i = 0; i < blocks.length; i++) {
+                    int ciphertext = blocks[i];
+                    blocks[i] = decryptInput[d++] ^ previous;
+                    previous = ciphertext;
+                }
+            }
+            complete(r, blocks, engine);
+        }
+    }
+
+    private static boolean usesBulkEncrypt(Request r) {
+        return r.mode == SAESMode.CTR || (r.mode == SAESMode.ECB && r.encrypt);
+    }
+
+    private static boolean usesBulkDecrypt(Request r) {
+        return !r.encrypt && r.mode != SAESMode.CTR;
+    }
+
+    private static int[] multiKey(Request r) {
+        List<Integer> blocks = SAESUtils.toList(r.blocks);
+        int[] k = r.keys;
+        List<Integer> out;
+        if (r.mode == SAESMode.ECB) {
+            if (k.length == 2) {
+                out = r.encrypt ? SAESUtils.doubleEncryptECB(blocks, k[0], k[1]) : SAESUtils.doubleDecryptECB(blocks, k[0], k[1]);
+            } else {
+                out = r.encrypt ? SAESUtils.tripleEncryptECB(blocks, k[0], k[1], k[2])
+                        : SAESUtils.tripleDecryptECB(blocks, k[0], k[1], k[2]);
+            }
+        } else if (k.length == 2) {
+            out = r.encrypt ? SAESUtils.doubleEncryptCBC(blocks, k[0], k[1], r.iv)
+                    : SAESUtils.doubleDecryptCBC(blocks, k[0], k[1], r.iv);
+        } else {
+            out = r.encrypt ? SAESUtils.tripleEncryptCBC(blocks, k[0], k[1], k[2], r.iv)
+                    : SAESUtils.tripleDecryptCBC(blocks, k[0], k[1], k[2], r.iv);
+        }
+        return SAESUtils.toArray(out);
+    }
+
+    private static void complete(Request request, int[] blocks, String engine) {
+        SAESMetrics.record(request.operation(), engine, blocks.length, request.submitted);
+        request.result.complete(blocks);
+    }
+
+    // 停止接收新请求，等待已提交的请求全部完成
+    // 等待期间被中断时仍继续等待，返回前恢复中断标志；调度线程退出后队列中剩余的请求以失败结束
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        Request left;
+        while ((left = queue.poll()) != null) {
+            left.result.completeExceptionally(new IllegalStateException("批量作业服务已关闭"));
+        }
+        workers.shutdown();
+        while (!workers.isTerminated()) {
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 命令行工具：提交大量小请求，与逐个调用SAESUtils比较结果与耗时
+    //   java SAESBatchService [请求数] [每个请求的块数] [不同密钥数]
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int keyCount = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Random random = new Random(1);
+        SAESMode[] modes = SAESMode.values();
+        Request[] requests = new Request[count];
+        for (int i = 0; i < count; i++) {
+            int[] blocks = random.ints(size, 0, 0x10000).toArray();
+            int key = random.nextInt(keyCount) * 0x9E37 & 0xFFFF;
+            SAESMode mode = modes[i % modes.length];
+            requests[i] = random.nextBoolean() ? Request.encrypt(mode, i, blocks, key) : Request.decrypt(mode, i, blocks, key);
+        }
+        SAESEngines.bulk();
+        SAESEngines.single();
+
+        long start = System.nanoTime();
+        int[][] expected = new int[count][];
+        for (int i = 0; i < count; i++) {
+            Request r = requests[i];
+            expected[i] = r.blocks.clone();
+            if (r.encrypt) {
+                SAESUtils.encryptBlocks(r.mode, r.keys[0], r.iv, 0, expected[i], 0, size);
+            } else {
+                SAESUtils.decryptBlocks(r.mode, r.keys[0], r.iv, 0, expected[i], 0, size);
+            }
+        }
+        double sequential = (System.nanoTime() - start) / 1e6;
+
+        SAESMetrics.getInstance().reset();
+        List<CompletableFuture<int[]>> futures = new ArrayList<>(count);
+        start = System.nanoTime();
+        try (SAESBatchService service = new SAESBatchService()) {
+            for (Request r : requests) {
+                futures.add(service.submit(r));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            System.out.println("虚拟线程: " + service.usesVirtualThreads());
+        }
+        double batched = (System.nanoTime() - start) / 1e6;
+        int mismatches = 0;
+        for (int i = 0; i < count; i++) {
+            if (!Arrays.equals(futures.get(i).get(), expected[i])) {
+                mismatches++;
+            }
+        }
+        System.out.printf("%d个请求，每个%d块，%d个密钥：逐个调用 %.1f ms，批量服务 %.1f ms，不一致 %d%n",
+                count, size, keyCount, sequential, batched, mismatches);
+        System.out.print(SAESMetrics.snapshot());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR事件：密钥编排表、密码本等缓存的构建与淘汰
+@Name("saes.Cache")
+@Label("S-AES Cache")
+@Category({"S-AES", "Cache"})
+@Description("缓存构建或淘汰，包含缓存名称、条目数与字节数")
+@Enabled(false)
+@StackTrace(false)
+public class SAESCacheEvent extends Event {
+    public static final String BUILD = "build";
+    public static final String EVICT = "evict";
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Action")
+    String action;
+
+    @Label("Entries")
+    long entries;
+
+    @Label("Bytes")
+    long bytes;
+
+    public static SAESCacheEvent start() {
+        SAESCacheEvent event = new SAESCacheEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String cache, String action, long entries, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.cache = cache;
+            this.action = action;
+            this.entries = entries;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+
+    // 瞬时事件（如淘汰）
+    public static void emit(String cache, String action, long entries, long bytes) {
+        SAESCacheEvent event = new SAESCacheEvent();
+        if (event.isEnabled()) {
+            event.cache = cache;
+            event.action = action;
+            event.entries = entries;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR事件：一次批量加密/解密调用
+// 默认关闭，未启用时begin/end/commit均为空操作
+@Name("saes.Cipher")
+@Label("S-AES Bulk Cipher")
+@Category({"S-AES", "Cipher"})
+@Description("一次批量加密/解密调用的模式、引擎、块数与耗时")
+@Enabled(false)
+@StackTrace(false)
+public class SAESCipherEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Blocks")
+    long blocks;
+
+    // 创建事件并开始计时
+    public static SAESCipherEvent start() {
+        SAESCipherEvent event = new SAESCipherEvent();
+        event.begin();
+        return event;
+    }
+
+    // 结束计时，事件被启用且超过阈值时才填充字段并提交
+    public void finish(String operation, String engine, long blocks) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.engine = engine;
+            this.blocks = blocks;
+            commit();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+// SAESServer的客户端，协议见SAESServer
+// submit立即发送请求并返回CompletableFuture，不等待之前的响应（流水线）；
+// 后台线程按顺序读取响应并完成对应的Future
+// encrypt/decrypt为同步便捷方法
+// 线程安全：多个线程可共用一个连接
+public class SAESClient implements AutoCloseable {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final ConcurrentHashMap<Integer, CompletableFuture<int[]>> pending = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private int nextId;
+    private volatile IOException failure;
+
+    public SAESClient(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress().getHostAddress(), port);
+    }
+
+    public SAESClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), SAESServer.BUFFER_SIZE));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), SAESServer.BUFFER_SIZE));
+        this.reader = new Thread(this::readResponses, "saes-client-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    // 发送请求，keys为1到3个密钥（多个密钥时为双重/三重加密，不支持CTR）
+    public CompletableFuture<int[]> submit(boolean encrypt, SAESMode mode, int iv, int[] blocks, int... keys)
+            throws IOException {
+        if (keys.length < 1 || keys.length > 3) {
+            throw new IllegalArgumentException("密钥个数必须为1到3个");
+        }
+        if (blocks.length > SAESServer.MAX_BLOCKS) {
+            throw new IllegalArgumentException("单个请求最多" + SAESServer.MAX_BLOCKS + "块");
+        }
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        synchronized (out) {
+            if (failure != null) {
+                throw failure;
+            }
+            int id = nextId++;
+            pending.put(id, future);
+            out.writeInt(id);
+            out.writeByte(encrypt ? SAESServer.OP_ENCRYPT : SAESServer.OP_DECRYPT);
+            out.writeByte(mode.ordinal());
+            out.writeByte(keys.length);
+            for (int key : keys) {
+                out.writeShort(key);
+            }
+            out.writeShort(iv);
+            out.writeInt(blocks.length);
+            for (int block : blocks) {
+                out.writeShort(block);
+            }
+            out.flush();
+        }
+        return future;
+    }
+
+    public int[] encrypt(SAESMode mode, int iv, int[] blocks, int... keys) throws IOException {
+        return await(submit(true, mode, iv, blocks, keys));
+    }
+
+    public int[] decrypt(SAESMode mode, int iv, int[] blocks, int... keys) throws IOException {
+        return await(submit(false, mode, iv, blocks, keys));
+    }
+
+    private static int[] await(CompletableFuture<int[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待响应时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void readResponses() {
+        try {
+            while (true) {
+                int id;
+                try {
+                    id = in.readInt();
+                } catch (EOFException e) {
+                    throw new IOException("服务器已关闭连接");
+                }
+                int status = in.readUnsignedByte();
+                int length = in.readInt();
+                CompletableFuture<int[]> future = pending.remove(id);
+                if (future == null || length < 0 || length > SAESServer.MAX_BLOCKS) {
+                    throw new IOException("响应格式错误");
+                }
+                if (status == SAESServer.STATUS_OK) {
+                    int[] blocks = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        blocks[i] = in.readUnsignedShort();
+                    }
+                    future.complete(blocks);
+                } else {
+                    byte[] message = new byte[length];
+                    in.readFully(message);
+                    future.completeExceptionally(new IOException("服务器错误: " + new String(message, StandardCharsets.UTF_8)));
+                }
+            }
+        } catch (IOException e) {
+            synchronized (out) {
+                failure = e;
+            }
+            for (CompletableFuture<int[]> future : pending.values()) {
+                future.completeExceptionally(e);
+            }
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
\ No newline at end of file
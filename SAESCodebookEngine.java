@@ -0,0 +1,138 @@
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 密码本引擎：为最近使用的密钥缓存完整的加密/解密密码本（各65536项），批量加解密只剩一次数组访问
+// 只有一次批量调用不少于BUILD_THRESHOLD个块时才构建密码本，其余调用命中缓存则查表，否则直接用查表引擎计算，
+// 因此单块和密钥搜索不会因频繁换密钥而反复构建
+// 缓存最多CACHE_ENTRIES个密钥（每个256 KiB），超出时淘汰任意一个旧条目
+public class SAESCodebookEngine implements SAESEngine {
+    public static final String NAME = "codebook";
+    public static final String CACHE_NAME = "codebook";
+    static final int KEY_SPACE = 0x10000;
+    static final int BUILD_THRESHOLD = 4096;
+    static final int CACHE_ENTRIES = 16;
+
+    private final ConcurrentHashMap<Integer, Codebook> cache = new ConcurrentHashMap<>();
+
+    // 单个密钥的加密与解密密码本
+    private static final class Codebook {
+        final char[] encrypt = new char[KEY_SPACE];
+        final char[] decrypt = new char[KEY_SPACE];
+
+        // 配置了码本库且库中有该密钥时直接复制映射中的加密码本，解密码本由其求逆
+        Codebook(int key) {
+            SAESCodebookStore store = SAESCodebookStore.shared();
+            if (store != null && store.load(key, encrypt)) {
+                for (int x = 0; x < KEY_SPACE; x++) {
+                    decrypt[encrypt[x]] = (char) x;
+                }
+                return;
+            }
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int x = 0; x < KEY_SPACE; x++) {
+                int c = SAESTableEngine.encrypt(x, key, roundKeys);
+                encrypt[x] = (char) c;
+                decrypt[c] = (char) x;
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    private Codebook cached(int key) {
+        Codebook codebook = cache.get(key & 0xFFFF);
+        if (codebook != null) {
+            SAESMetrics.cacheHit(CACHE_NAME);
+        }
+        return codebook;
+    }
+
+    private Codebook codebook(int key) {
+        Codebook codebook = cached(key);
+        if (codebook != null) {
+            return codebook;
+        }
+        SAESMetrics.cacheMiss(CACHE_NAME);
+        SAESCacheEvent event = SAESCacheEvent.start();
+        codebook = cache.computeIfAbsent(key & 0xFFFF, Codebook::new);
+        event.finish(CACHE_NAME, SAESCacheEvent.BUILD, KEY_SPACE, KEY_SPACE * 4L);
+        evict(key & 0xFFFF);
+        return codebook;
+    }
+
+    private void evict(int keep) {
+        Iterator<Integer> keys = cache.keySet().iterator();
+        while (cache.size() > CACHE_ENTRIES && keys.hasNext()) {
+            int key = keys.next();
+            if (key != keep && cache.remove(key) != null) {
+                SAESCacheEvent.emit(CACHE_NAME, SAESCacheEvent.EVICT, KEY_SPACE, KEY_SPACE * 4L);
+            }
+        }
+    }
+
+    // 清空缓存
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public int encryptBlock(int block, int key) {
+        Codebook codebook = cached(key);
+        if (codebook != null) {
+            return codebook.encrypt[block & 0xFFFF];
+        }
+        return SAESTableEngine.encrypt(block, key, SAESKeySchedule.roundKeys(key));
+    }
+
+    @Override
+    public int decryptBlock(int block, int key) {
+        Codebook codebook = cached(key);
+        if (codebook != null) {
+            return codebook.decrypt[block & 0xFFFF];
+        }
+        return SAESTableEngine.decrypt(block, key, SAESKeySchedule.roundKeys(key));
+    }
+
+    @Override
+    public void encrypt(int key, int[] blocks, int offset, int length) {
+        Codebook codebook = length >= BUILD_THRESHOLD ? codebook(key) : cached(key);
+        if (codebook == null) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = SAESTableEngine.encrypt(blocks[i], key, roundKeys);
+            }
+            return;
+        }
+        char[] table = codebook.encrypt;
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = table[blocks[i] & 0xFFFF];
+        }
+    }
+
+    @Override
+    public void decrypt(int key, int[] blocks, int offset, int length) {
+        Codebook codebook = length >= BUILD_THRESHOLD ? codebook(key) : cached(key);
+        if (codebook == null) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = SAESTableEngine.decrypt(blocks[i], key, roundKeys);
+            }
+            return;
+        }
+        char[] table = codebook.decrypt;
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = table[blocks[i] & 0xFFFF];
+        }
+    }
+
+    @Override
+    public void encryptUnderKeys(int plaintext, int firstKey, int[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int key = (firstKey + i) & 0xFFFF;
+            out[outOffset + i] = SAESTableEngine.encrypt(plaintext, key, SAESKeySchedule.roundKeys(key));
+        }
+    }
+}
\ No newline at end of file
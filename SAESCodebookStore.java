@@ -0,0 +1,428 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+
+// 持久化的加密密码本库：为一组密钥（最多全部65536个，共8 GiB）预先计算加密密码本写入文件，
+// 运行时用FileChannel.map只读映射，同一主机上的多个JVM共享操作系统页缓存中的同一份页面，启动即可使用
+// 文件布局（头部字段为大端）：
+//   0      魔数"SAESCBK1"
+//   8      u32 版本
+//   12     u32 已提交的码本数
+//   16     u32 头部CRC32C（覆盖前16字节与已提交的索引项）
+//   4096   索引，每项8字节：u16 密钥、u16 保留、u32 码本的CRC32C，共65536项
+//   DATA_OFFSET起为码本，第i个码本位于DATA_OFFSET + i·128 KiB，65536个小端u16，按页对齐
+// 只存加密方向；解密表由加密码本求逆得到，比从SAESCore重新计算快得多
+// 追加时先写码本和索引并落盘，最后才更新码本数，中途失败不会破坏已提交的内容
+// 追加全程持有文件的排他锁（FileLock），多个JVM同时追加时依次进行；同一JVM内的追加另由类锁串行化
+// 新建时先写入同目录下的临时文件，再原子地替换目标文件，已映射旧文件的进程不受影响
+// 打开时并行校验每个码本的CRC32C（-Dsaes.codebookStore.verify=false可跳过）
+// 设置-Dsaes.codebookStore=<文件>后，SAESCodebookEngine构建码本时优先从库中读取
+public class SAESCodebookStore {
+    public static final String CACHE_NAME = "codebook-store";
+    static final int KEY_SPACE = 0x10000;
+    static final int VERSION = 1;
+    static final int TABLE_BYTES = KEY_SPACE * 2;
+    static final int INDEX_OFFSET = 4096;
+    static final int ENTRY_BYTES = 8;
+    static final long DATA_OFFSET = INDEX_OFFSET + (long) KEY_SPACE * ENTRY_BYTES;
+    // 单个映射区间不能超过2 GiB，按每段8192个码本（1 GiB）映射
+    static final int SEGMENT_TABLES = 8192;
+    private static final byte[] MAGIC = "SAESCBK1".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final int count;
+    // 密钥 -> 槽位，不在库中为-1
+    private final int[] slots = new int[KEY_SPACE];
+    private final int[] keys;
+    private final MappedByteBuffer[] segments;
+
+    private SAESCodebookStore(Path path, int count, int[] keys, MappedByteBuffer[] segments) {
+        this.path = path;
+        this.count = count;
+        this.keys = keys;
+        this.segments = segments;
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < count; i++) {
+            slots[keys[i]] = i;
+        }
+    }
+
+    // 由-Dsaes.codebookStore指定的全局库，未设置或打不开时为null
+    private static final class Holder {
+        static final SAESCodebookStore SHARED = openShared();
+
+        private static SAESCodebookStore openShared() {
+            String file = System.getProperty("saes.codebookStore");
+            if (file == null || file.isEmpty()) {
+                return null;
+            }
+            try {
+                return open(Paths.get(file), !"false".equalsIgnoreCase(System.getProperty("saes.codebookStore.verify")));
+            } catch (IOException e) {
+                System.err.println("无法打开码本库，改为现场构建: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    public static SAESCodebookStore shared() {
+        return Holder.SHARED;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int[] keys() {
+        return Arrays.copyOf(keys, count);
+    }
+
+    public boolean contains(int key) {
+        return slots[key & 0xFFFF] >= 0;
+    }
+
+    // 把密钥的加密码本复制到encrypt（长度65536）中；库中没有该密钥时返回false
+    public boolean load(int key, char[] encrypt) {
+        int slot = slots[key & 0xFFFF];
+        if (slot < 0) {
+            return false;
+        }
+        table(slot).asCharBuffer().get(encrypt, 0, KEY_SPACE);
+        SAESMetrics.cacheHit(CACHE_NAME);
+        return true;
+    }
+
+    // 直接在映射上查表，不复制
+    public int encryptBlock(int key, int block) {
+        int slot = slots[key & 0xFFFF];
+        if (slot < 0) {
+            throw new IllegalArgumentException(String.format("码本库中没有密钥 %04X", key & 0xFFFF));
+        }
+        return segments[slot / SEGMENT_TABLES].getChar(offsetInSegment(slot) + ((block & 0xFFFF) << 1));
+    }
+
+    // 原地ECB加密，直接在映射上查表
+    public void encrypt(int key, int[] blocks, int offset, int length) {
+        int slot = slots[key & 0xFFFF];
+        if (slot < 0) {
+            throw new IllegalArgumentException(String.format("码本库中没有密钥 %04X", key & 0xFFFF));
+        }
+        long start = SAESMetrics.start();
+        MappedByteBuffer segment = segments[slot / SEGMENT_TABLES];
+        int base = offsetInSegment(slot);
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = segment.getChar(base + ((blocks[i] & 0xFFFF) << 1));
+        }
+        SAESMetrics.record("store.encrypt", SAESCodebookEngine.NAME, length, start);
+    }
+
+    private static int offsetInSegment(int slot) {
+        return (slot % SEGMENT_TABLES) * TABLE_BYTES;
+    }
+
+    // 槽位的码本视图（小端），各线程各自取用
+    private ByteBuffer table(int slot) {
+        return segments[slot / SEGMENT_TABLES].slice(offsetInSegment(slot), TABLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // 打开库并映射全部码本；verify为true时并行校验每个码本
+    public static SAESCodebookStore open(Path path, boolean verify) throws IOException {
+        SAESCacheEvent event = SAESCacheEvent.start();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(channel);
+            MappedByteBuffer[] segments = new MappedByteBuffer[(header.count + SEGMENT_TABLES - 1) / SEGMENT_TABLES];
+            for (int s = 0; s < segments.length; s++) {
+                int tables = Math.min(SEGMENT_TABLES, header.count - s * SEGMENT_TABLES);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        DATA_OFFSET + (long) s * SEGMENT_TABLES * TABLE_BYTES, (long) tables * TABLE_BYTES);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            SAESCodebookStore store = new SAESCodebookStore(path, header.count, header.keys, segments);
+            if (verify) {
+                store.verify(header.checksums);
+            }
+            event.finish(CACHE_NAME, SAESCacheEvent.BUILD, header.count, (long) header.count * TABLE_BYTES);
+            return store;
+        }
+    }
+
+    private void verify(int[] checksums) throws IOException {
+        try {
+            IntStream.range(0, count).parallel().forEach(slot -> {
+                CRC32C crc = new CRC32C();
+                crc.update(table(slot));
+                if ((int) crc.getValue() != checksums[slot]) {
+                    throw new UncheckedIOException(new IOException(
+                            String.format("码本库已损坏: 密钥 %04X 的码本校验失败", keys[slot])));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 新建库（替换已有文件）：在临时文件中建好后原子改名，不在原地截断其它进程可能正映射着的文件
+    public static int create(Path path, int[] keys) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        // 临时文件按默认权限创建（不用createTempFile的仅属主可读），与直接新建时一致
+        Path temp = absolute.resolveSibling(absolute.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.READ)) {
+                new Header(0, new int[0], new int[0]).write(channel);
+                channel.force(true);
+            }
+            int added = append(temp, keys);
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return added;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // 追加库中尚没有的密钥，返回新增的码本数；码本并行生成，用定位写入各自的槽位
+    // 头部在持有排他锁后才读取，因此并发的追加者不会选中相同的槽位
+    public static synchronized int append(Path path, int[] keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            // 通道关闭时锁随之释放
+            channel.lock();
+            Header header = Header.read(channel);
+            Set<Integer> present = new LinkedHashSet<>();
+            for (int i = 0; i < header.count; i++) {
+                present.add(header.keys[i]);
+            }
+            Set<Integer> added = new LinkedHashSet<>();
+            for (int key : keys) {
+                if (!present.contains(key & 0xFFFF)) {
+                    added.add(key & 0xFFFF);
+                }
+            }
+            int[] newKeys = added.stream().mapToInt(Integer::intValue).toArray();
+            if (newKeys.length == 0) {
+                return 0;
+            }
+            int total = header.count + newKeys.length;
+            int[] allKeys = Arrays.copyOf(header.keys, total);
+            int[] checksums = Arrays.copyOf(header.checksums, total);
+            SAESCacheEvent event = SAESCacheEvent.start();
+            try {
+                IntStream.range(0, newKeys.length).parallel().forEach(i -> {
+                    int slot = header.count + i;
+                    allKeys[slot] = newKeys[i];
+                    try {
+                        checksums[slot] = writeTable(channel, slot, newKeys[i]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            // 码本落盘后再提交头部
+            channel.force(false);
+            new Header(total, allKeys, checksums).write(channel);
+            channel.force(true);
+            event.finish(CACHE_NAME, SAESCacheEvent.BUILD, newKeys.length, (long) newKeys.length * TABLE_BYTES);
+            return newKeys.length;
+        }
+    }
+
+    // 计算并写入一个码本，返回其CRC32C
+    private static int writeTable(FileChannel channel, int slot, int key) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TABLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int roundKeys = SAESKeySchedule.roundKeys(key);
+        for (int x = 0; x < KEY_SPACE; x++) {
+            buffer.putChar((char) SAESTableEngine.encrypt(x, key, roundKeys));
+        }
+        buffer.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        long position = DATA_OFFSET + (long) slot * TABLE_BYTES;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return (int) crc.getValue();
+    }
+
+    // 头部与索引
+    private static final class Header {
+        final int count;
+        final int[] keys;
+        final int[] checksums;
+
+        Header(int count, int[] keys, int[] checksums) {
+            this.count = count;
+            this.keys = keys;
+            this.checksums = checksums;
+        }
+
+        static Header read(FileChannel channel) throws IOException {
+            ByteBuffer fixed = ByteBuffer.allocate(20);
+            SAESContainer.readFully(channel, fixed, 0);
+            fixed.flip();
+            byte[] magic = new byte[MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是码本库文件");
+            }
+            int version = fixed.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的码本库版本: " + version);
+            }
+            int count = fixed.getInt();
+            int expected = fixed.getInt();
+            if (count < 0 || count > KEY_SPACE
+                    || (count > 0 && channel.size() < DATA_OFFSET + (long) count * TABLE_BYTES)) {
+                throw new IOException("码本库已损坏: 码本数 " + count);
+            }
+            ByteBuffer index = ByteBuffer.allocate(count * ENTRY_BYTES);
+            SAESContainer.readFully(channel, index, INDEX_OFFSET);
+            index.flip();
+            CRC32C crc = new CRC32C();
+            crc.update(fixed.array(), 0, 16);
+            crc.update(index.duplicate());
+            if ((int) crc.getValue() != expected) {
+                throw new IOException("码本库已损坏: 头部校验失败");
+            }
+            int[] keys = new int[count];
+            int[] checksums = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = index.getChar();
+                index.getChar();
+                checksums[i] = index.getInt();
+            }
+            return new Header(count, keys, checksums);
+        }
+
+        // 先写索引，再写固定字段（码本数是提交点）
+        void write(FileChannel channel) throws IOException {
+            ByteBuffer index = ByteBuffer.allocate(count * ENTRY_BYTES);
+            for (int i = 0; i < count; i++) {
+                index.putChar((char) keys[i]);
+                index.putChar((char) 0);
+                index.putInt(checksums[i]);
+            }
+            index.flip();
+            long position = INDEX_OFFSET;
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+            channel.force(false);
+            ByteBuffer fixed = ByteBuffer.allocate(20);
+            fixed.put(MAGIC);
+            fixed.putInt(VERSION);
+            fixed.putInt(count);
+            index.rewind();
+            CRC32C crc = new CRC32C();
+            crc.update(fixed.array(), 0, 16);
+            crc.update(index);
+            fixed.putInt((int) crc.getValue());
+            fixed.flip();
+            position = 0;
+            while (fixed.hasRemaining()) {
+                position += channel.write(fixed, position);
+            }
+        }
+    }
+
+    // 解析密钥列表："all"、逗号分隔的16进制密钥或区间，如"0000-00FF,1A2B"
+    public static int[] parseKeys(String spec) {
+        if (spec.equalsIgnoreCase("all")) {
+            return IntStream.range(0, KEY_SPACE).toArray();
+        }
+        IntStream.Builder keys = IntStream.builder();
+        try {
+            for (String part : spec.split(",")) {
+                String[] range = part.trim().split("-");
+                int first = Integer.parseInt(range[0], 16);
+                int last = range.length > 1 ? Integer.parseInt(range[1], 16) : first;
+                if (first < 0 || last >= KEY_SPACE || first > last) {
+                    throw new IllegalArgumentException("无效的密钥区间: " + part);
+                }
+                for (int key = first; key <= last; key++) {
+                    keys.add(key);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的密钥列表: " + spec);
+        }
+        return keys.build().toArray();
+    }
+
+    // 命令行：
+    //   java SAESCodebookStore create <文件> <密钥列表>    新建库，密钥列表如"all"或"0000-03FF,1A2B"
+    //   java SAESCodebookStore append <文件> <密钥列表>    追加新密钥
+    //   java SAESCodebookStore verify <文件>               校验全部码本
+    //   java SAESCodebookStore bench <文件>                比较映射加载与现场构建码本的耗时
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && (args[0].equals("create") || args[0].equals("append"))) {
+            Path path = Paths.get(args[1]);
+            int[] keys = parseKeys(args[2]);
+            long t0 = System.nanoTime();
+            int added = args[0].equals("create") ? create(path, keys) : append(path, keys);
+            System.out.printf("写入 %d 个码本，用时 %.1f ms，文件 %.1f MiB%n", added, (System.nanoTime() - t0) / 1e6,
+                    Files.size(path) / 1048576.0);
+        } else if (args.length == 2 && args[0].equals("verify")) {
+            long t0 = System.nanoTime();
+            SAESCodebookStore store = open(Paths.get(args[1]), true);
+            System.out.printf("%d 个码本校验通过，用时 %.1f ms%n", store.size(), (System.nanoTime() - t0) / 1e6);
+        } else if (args.length == 2 && args[0].equals("bench")) {
+            bench(Paths.get(args[1]));
+        } else {
+            System.out.println("用法: java SAESCodebookStore create|append <文件> <密钥列表>");
+            System.out.println("      java SAESCodebookStore verify|bench <文件>");
+        }
+    }
+
+    private static void bench(Path path) throws IOException {
+        long t0 = System.nanoTime();
+        SAESCodebookStore store = open(path, false);
+        long opened = System.nanoTime() - t0;
+        int[] keys = store.keys();
+        char[] table = new char[KEY_SPACE];
+        int n = Math.min(keys.length, 256);
+        int mismatches = 0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            store.load(keys[i], table);
+        }
+        long loaded = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            int roundKeys = SAESKeySchedule.roundKeys(keys[i]);
+            for (int x = 0; x < KEY_SPACE; x++) {
+                table[x] = (char) SAESTableEngine.encrypt(x, keys[i], roundKeys);
+            }
+        }
+        long built = System.nanoTime() - t0;
+        for (int i = 0; i < n; i++) {
+            int key = keys[i];
+            for (int x = 0; x < KEY_SPACE; x += 97) {
+                if (store.encryptBlock(key, x) != SAESCore.encryptBlock(x, key, SAESCore.expandKey(key))) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("打开（映射 %d 个码本）: %.2f ms%n", store.size(), opened / 1e6);
+        System.out.printf("每个码本：映射加载 %.1f µs，现场构建 %.1f µs；抽查不一致 %d%n",
+                loaded / 1e3 / n, built / 1e3 / n, mismatches);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,418 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// 字节安全的文本/字节 <-> 16位数据块编解码器
+// 文本统一按UTF-8编码，末尾使用PKCS#7风格填充（块长2字节）：
+//   字节数为奇数时补1个0x01，为偶数时补一个完整块0x0202
+// 因此任意输入（包括空串、奇数长度、非Latin-1字符）都能精确往返
+public class SAESCodec {
+    // 每次流式处理的块数
+    public static final int CHUNK_BLOCKS = 4096;
+
+    // 块输出回调：blocks[0..count)为本次产生的数据块，回调返回后数组会被复用
+    public interface BlockSink {
+        void accept(int[] blocks, int count) throws IOException;
+    }
+
+    // 文本编码为数据块（带填充）
+    public static int[] encodeText(CharSequence text) {
+        BlockCollector collector = new BlockCollector(text.length() / 2 + 1);
+        try {
+            Encoder encoder = new Encoder(collector);
+            encoder.update(text);
+            encoder.finish();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("文本无法按UTF-8编码: " + e.getMessage(), e);
+        }
+        return collector.toArray();
+    }
+
+    // 数据块解码为文本（去除填充）
+    public static String decodeText(int[] blocks, int offset, int length) {
+        StringBuilder sb = new StringBuilder(length * 2);
+        try {
+            Decoder decoder = new Decoder(sb);
+            decoder.update(blocks, offset, length);
+            decoder.finish();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("数据块不是有效的UTF-8文本: " + e.getMessage(), e);
+        }
+        return sb.toString();
+    }
+
+    // 字节数组编码为数据块（带填充）
+    public static int[] encodeBytes(byte[] data, int offset, int length) {
+        int[] blocks = new int[length / 2 + 1];
+        int n = 0;
+        int end = offset + length - 1;
+        int i = offset;
+        for (; i < end; i += 2) {
+            blocks[n++] = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+        }
+        blocks[n] = padBlock(i < offset + length, i < offset + length ? data[i] : 0);
+        return blocks;
+    }
+
+    // 数据块解码为字节数组（去除填充）
+    public static byte[] decodeBytes(int[] blocks, int offset, int length) {
+        int pad = paddingLength(blocks, offset, length);
+        byte[] data = new byte[length * 2 - pad];
+        int n = 0;
+        for (int i = offset; i < offset + length - 1; i++) {
+            data[n++] = (byte) (blocks[i] >> 8);
+            data[n++] = (byte) blocks[i];
+        }
+        if (pad == 1) {
+            data[n] = (byte) (blocks[offset + length - 1] >> 8);
+        }
+        return data;
+    }
+
+    // 返回末块中填充的字节数（1或2），填充无效时抛出异常
+    public static int paddingLength(int[] blocks, int offset, int length) {
+        if (length == 0) {
+            throw new IllegalArgumentException("缺少填充块");
+        }
+        int last = blocks[offset + length - 1] & 0xFFFF;
+        if (last == 0x0202) {
+            return 2;
+        }
+        if ((last & 0xFF) == 0x01) {
+            return 1;
+        }
+        throw new IllegalArgumentException("填充无效: " + String.format("%04X", last));
+    }
+
+    // 构造末尾填充块：有剩余字节时补0x01，否则补0x0202
+    private static int padBlock(boolean hasRemainder, int remainder) {
+        return hasRemainder ? ((remainder & 0xFF) << 8) | 0x01 : 0x0202;
+    }
+
+    // 流式读取文本并编码为数据块
+    public static void encode(Reader reader, BlockSink sink) throws IOException {
+        Encoder encoder = new Encoder(sink);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_BLOCKS * 2);
+        while (reader.read(chars) != -1) {
+            chars.flip();
+            encoder.update(chars);
+            chars.compact();
+        }
+        chars.flip();
+        encoder.update(chars);
+        encoder.finish();
+    }
+
+    // 流式读取字节并编码为数据块
+    public static void encode(InputStream in, BlockSink sink) throws IOException {
+        ByteEncoder encoder = new ByteEncoder(sink);
+        byte[] buffer = new byte[CHUNK_BLOCKS * 2];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            encoder.update(buffer, 0, read);
+        }
+        encoder.finish();
+    }
+
+    // 流式字节编码器：数据可按任意长度分段输入，finish()时追加填充
+    public static class ByteEncoder {
+        private final BlockSink sink;
+        private final int[] blocks;
+        private int carry = -1; // 上一段留下的奇数字节
+        private boolean finished;
+
+        public ByteEncoder(BlockSink sink) {
+            this(sink, CHUNK_BLOCKS);
+        }
+
+        public ByteEncoder(BlockSink sink, int chunkBlocks) {
+            if (chunkBlocks < 1) {
+                throw new IllegalArgumentException("块缓冲区至少需要1个块");
+            }
+            this.sink = sink;
+            this.blocks = new int[chunkBlocks];
+        }
+
+        public void update(byte[] data, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("编码器已结束");
+            }
+            int end = offset + length;
+            int i = offset;
+            int n = 0;
+            if (carry >= 0 && i < end) {
+                blocks[n++] = (carry << 8) | (data[i++] & 0xFF);
+                carry = -1;
+            }
+            for (; i + 1 < end; i += 2) {
+                if (n == blocks.length) {
+                    sink.accept(blocks, n);
+                    n = 0;
+                }
+                blocks[n++] = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+            }
+            if (i < end) {
+                carry = data[i] & 0xFF;
+            }
+            if (n > 0) {
+                sink.accept(blocks, n);
+            }
+        }
+
+        // 结束编码：输出填充块
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            blocks[0] = padBlock(carry >= 0, carry);
+            sink.accept(blocks, 1);
+        }
+    }
+
+    // 流式字节解码器：最后一个块作为填充在finish()时校验并去除
+    public static class ByteDecoder {
+        private final OutputStream out;
+        private final byte[] bytes = new byte[CHUNK_BLOCKS * 2];
+        private int pending = -1; // 暂存的末块，可能是填充块
+        private boolean finished;
+
+        public ByteDecoder(OutputStream out) {
+            this.out = out;
+        }
+
+        public void update(int[] blocks, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("解码器已结束");
+            }
+            int n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                if (pending >= 0) {
+                    if (n == bytes.length) {
+                        out.write(bytes, 0, n);
+                        n = 0;
+                    }
+                    bytes[n++] = (byte) (pending >> 8);
+                    bytes[n++] = (byte) pending;
+                }
+                pending = blocks[i] & 0xFFFF;
+            }
+            if (n > 0) {
+                out.write(bytes, 0, n);
+            }
+        }
+
+        // 结束解码：校验并去除填充
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (pending < 0) {
+                throw new IllegalArgumentException("缺少填充块");
+            }
+            if (paddingLength(new int[]{pending}, 0, 1) == 1) {
+                out.write(pending >> 8);
+            }
+        }
+    }
+
+    // 流式文本编码器：字符经CharsetEncoder直接写入块缓冲区，finish()时追加填充
+    public static class Encoder {
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private final ByteBuffer bytes;
+        private final int[] blocks;
+        private final BlockSink sink;
+        private boolean finished;
+
+        public Encoder(BlockSink sink) {
+            this(sink, CHUNK_BLOCKS);
+        }
+
+        public Encoder(BlockSink sink, int chunkBlocks) {
+            if (chunkBlocks < 4) {
+                throw new IllegalArgumentException("块缓冲区至少需要4个块");
+            }
+            this.sink = sink;
+            this.bytes = ByteBuffer.allocate(chunkBlocks * 2);
+            this.blocks = new int[chunkBlocks];
+        }
+
+        public void update(CharSequence text) throws IOException {
+            update(CharBuffer.wrap(text));
+        }
+
+        public void update(CharBuffer in) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("编码器已结束");
+            }
+            encode(in, false);
+        }
+
+        // 结束编码：刷新编码器并输出填充块
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            encode(CharBuffer.allocate(0), true);
+            CoderResult result;
+            while ((result = encoder.flush(bytes)).isOverflow()) {
+                drain();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain();
+            // drain之后缓冲区中最多剩1个字节
+            int n = 0;
+            bytes.flip();
+            if (bytes.hasRemaining()) {
+                blocks[n++] = padBlock(true, bytes.get());
+            } else {
+                blocks[n++] = padBlock(false, 0);
+            }
+            bytes.clear();
+            sink.accept(blocks, n);
+        }
+
+        private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+            while (true) {
+                CoderResult result = encoder.encode(in, bytes, endOfInput);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        // 输出缓冲区中所有完整的块，奇数字节保留到下一次
+        private void drain() throws IOException {
+            bytes.flip();
+            int n = bytes.remaining() >> 1;
+            for (int i = 0; i < n; i++) {
+                blocks[i] = bytes.getShort() & 0xFFFF;
+            }
+            bytes.compact();
+            if (n > 0) {
+                sink.accept(blocks, n);
+            }
+        }
+    }
+
+    // 流式文本解码器：数据块经CharsetDecoder直接解码到输出，最后一个块作为填充在finish()时校验
+    public static class Decoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_BLOCKS * 2 + 4);
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_BLOCKS * 2);
+        private final Appendable out;
+        private int pending = -1; // 暂存的末块，可能是填充块
+        private boolean finished;
+
+        public Decoder(Appendable out) {
+            this.out = out;
+        }
+
+        public void update(int[] blocks, int offset, int length) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("解码器已结束");
+            }
+            for (int i = offset; i < offset + length; i++) {
+                if (pending >= 0) {
+                    if (bytes.remaining() < 2) {
+                        decode(false);
+                    }
+                    bytes.putShort((short) pending);
+                }
+                pending = blocks[i] & 0xFFFF;
+            }
+        }
+
+        // 结束解码：校验并去除填充，输出剩余字符
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (pending < 0) {
+                throw new CharacterCodingException();
+            }
+            int pad = paddingLength(new int[]{pending}, 0, 1);
+            if (bytes.remaining() < 2) {
+                decode(false);
+            }
+            if (pad == 1) {
+                bytes.put((byte) (pending >> 8));
+            }
+            decode(true);
+            CoderResult result;
+            while ((result = decoder.flush(chars)).isOverflow()) {
+                emit();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            emit();
+        }
+
+        private void decode(boolean endOfInput) throws IOException {
+            bytes.flip();
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isOverflow()) {
+                    emit();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    break;
+                }
+            }
+            bytes.compact();
+        }
+
+        private void emit() throws IOException {
+            chars.flip();
+            out.append(chars);
+            chars.clear();
+        }
+    }
+
+    // 将流式输出的块收集到可增长的数组中
+    static class BlockCollector implements BlockSink {
+        private int[] data;
+        private int size;
+
+        BlockCollector(int capacity) {
+            data = new int[Math.max(capacity, 1)];
+        }
+
+        @Override
+        public void accept(int[] blocks, int count) {
+            if (size + count > data.length) {
+                data = java.util.Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+            }
+            System.arraycopy(blocks, 0, data, size, count);
+            size += count;
+        }
+
+        int[] toArray() {
+            return java.util.Arrays.copyOf(data, size);
+        }
+    }
+}
\ No newline at end of file
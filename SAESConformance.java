@@ -0,0 +1,341 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// 两个S-AES实现之间的穷举一致性检查
+// 对区间内每个密钥、全部65536个块比较：
+//   加密结果是否相同、解密结果是否相同、各自的 D(E(x)) 是否等于x
+// 密钥之间并行处理；每个密钥只记录各类不一致的首个块与个数（基本类型数组，内存固定）
+// 报告中列出最先出现不一致的若干密钥，并给出两个实现的逐步加密轨迹以定位分歧所在的步骤
+// 新增的实现在投入使用前都应先与参考实现通过本检查
+public class SAESConformance {
+    static final int KEY_SPACE = 0x10000;
+    // 报告中最多列出的不一致密钥数
+    static final int MAX_REPORTED = 8;
+
+    // 加密轨迹各步骤名称，与SAESCore/SAESTool的encryptTrace对应
+    public static final String[] STAGES = {
+        "轮密钥加0", "半字节替代1", "行移位1", "列混淆1", "轮密钥加1", "半字节替代2", "行移位2", "轮密钥加2"
+    };
+
+    // 不一致类型
+    public static final int ENCRYPT = 0;
+    public static final int DECRYPT = 1;
+    public static final int ROUND_TRIP_A = 2;
+    public static final int ROUND_TRIP_B = 3;
+    static final String[] KIND_NAMES = {"加密结果不同", "解密结果不同", "A往返失败", "B往返失败"};
+
+    static final String BULK_SUFFIX = ":bulk";
+
+    // 被检查的实现
+    public interface Implementation {
+        String name();
+
+        // 为密钥准备好的单块加解密
+        KeyedCipher withKey(int key);
+
+        // 加密各步骤后的状态，顺序见STAGES；不支持时返回null
+        int[] trace(int plaintext, int key);
+    }
+
+    public interface KeyedCipher {
+        int encrypt(int block);
+
+        int decrypt(int block);
+    }
+
+    // SAESCore：查全局轮密钥表
+    public static final Implementation CORE = new Implementation() {
+        @Override
+        public String name() {
+            return "core";
+        }
+
+        @Override
+        public KeyedCipher withKey(int key) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            return new KeyedCipher() {
+                @Override
+                public int encrypt(int block) {
+                    return SAESCore.encryptBlock(block, key, roundKeys);
+                }
+
+                @Override
+                public int decrypt(int block) {
+                    return SAESCore.decryptBlock(block, key, roundKeys);
+                }
+            };
+        }
+
+        @Override
+        public int[] trace(int plaintext, int key) {
+            return SAESCore.encryptTrace(plaintext, key);
+        }
+    };
+
+    // SAESTool中的图形界面实现（不输出过程的版本）
+    public static final Implementation TOOL = new Implementation() {
+        @Override
+        public String name() {
+            return "tool";
+        }
+
+        @Override
+        public KeyedCipher withKey(int key) {
+            int[] w = SAESTool.keyExpansion(key);
+            return new KeyedCipher() {
+                @Override
+                public int encrypt(int block) {
+                    return SAESTool.encryptBlock(block, w);
+                }
+
+                @Override
+                public int decrypt(int block) {
+                    return SAESTool.decryptBlock(block, w);
+                }
+            };
+        }
+
+        @Override
+        public int[] trace(int plaintext, int key) {
+            return SAESTool.encryptTrace(plaintext, key);
+        }
+    };
+
+    // 已注册引擎的单块方法，没有加密轨迹
+    public static Implementation of(SAESEngine engine) {
+        return new Implementation() {
+            @Override
+            public String name() {
+                return engine.name();
+            }
+
+            @Override
+            public KeyedCipher withKey(int key) {
+                return new KeyedCipher() {
+                    @Override
+                    public int encrypt(int block) {
+                        return engine.encryptBlock(block, key);
+                    }
+
+                    @Override
+                    public int decrypt(int block) {
+                        return engine.decryptBlock(block, key);
+                    }
+                };
+            }
+
+            @Override
+            public int[] trace(int plaintext, int key) {
+                return null;
+            }
+        };
+    }
+
+    // 已注册引擎的批量方法：每个密钥先用encrypt/decrypt批量算出完整密码本，再逐块查表比较
+    public static Implementation ofBulk(SAESEngine engine) {
+        return new Implementation() {
+            @Override
+            public String name() {
+                return engine.name() + BULK_SUFFIX;
+            }
+
+            @Override
+            public KeyedCipher withKey(int key) {
+                int[] encrypted = new int[KEY_SPACE];
+                int[] decrypted = new int[KEY_SPACE];
+                for (int x = 0; x < KEY_SPACE; x++) {
+                    encrypted[x] = x;
+                    decrypted[x] = x;
+                }
+                engine.encrypt(key, encrypted, 0, KEY_SPACE);
+                engine.decrypt(key, decrypted, 0, KEY_SPACE);
+                return new KeyedCipher() {
+                    @Override
+                    public int encrypt(int block) {
+                        return encrypted[block];
+                    }
+
+                    @Override
+                    public int decrypt(int block) {
+                        return decrypted[block];
+                    }
+                };
+            }
+
+            @Override
+            public int[] trace(int plaintext, int key) {
+                return null;
+            }
+        };
+    }
+
+    // core、tool，或已注册引擎的名称（加":bulk"后缀表示检查批量方法）
+    public static Implementation implementation(String name) {
+        if (name.equals(CORE.name())) {
+            return CORE;
+        }
+        if (name.equals(TOOL.name())) {
+            return TOOL;
+        }
+        if (name.endsWith(BULK_SUFFIX)) {
+            return ofBulk(SAESEngines.get(name.substring(0, name.length() - BULK_SUFFIX.length())));
+        }
+        return of(SAESEngines.get(name));
+    }
+
+    // 对密钥区间[keyFrom, keyTo)穷举比较两个实现
+    public static Result check(Implementation a, Implementation b, int keyFrom, int keyTo) {
+        if (keyFrom < 0 || keyTo > KEY_SPACE || keyFrom >= keyTo) {
+            throw new IllegalArgumentException("密钥区间无效");
+        }
+        Result result = new Result(a, b, keyFrom, keyTo);
+        IntStream.range(keyFrom, keyTo).parallel().forEach(key -> {
+            SAESSearchEvent event = SAESSearchEvent.start();
+            long start = SAESMetrics.start();
+            int mismatches = checkKey(a.withKey(key), b.withKey(key), key - keyFrom, result);
+            SAESMetrics.record("conformance", a.name() + "/" + b.name(), KEY_SPACE, start);
+            event.finish("conformance", 1, mismatches);
+        });
+        return result;
+    }
+
+    private static int checkKey(KeyedCipher a, KeyedCipher b, int slot, Result result) {
+        int[] counts = new int[4];
+        int[] first = {-1, -1, -1, -1};
+        for (int x = 0; x < KEY_SPACE; x++) {
+            int ca = a.encrypt(x);
+            int cb = b.encrypt(x);
+            if (ca != cb) {
+                note(ENCRYPT, x, counts, first);
+            }
+            if (a.decrypt(ca) != x) {
+                note(ROUND_TRIP_A, x, counts, first);
+            }
+            if (b.decrypt(cb) != x) {
+                note(ROUND_TRIP_B, x, counts, first);
+            }
+            if (a.decrypt(x) != b.decrypt(x)) {
+                note(DECRYPT, x, counts, first);
+            }
+        }
+        int total = 0;
+        for (int kind = 0; kind < 4; kind++) {
+            result.firstBlocks[kind][slot] = first[kind];
+            result.totals[kind].add(counts[kind]);
+            total += counts[kind];
+        }
+        return total;
+    }
+
+    private static void note(int kind, int block, int[] counts, int[] first) {
+        if (counts[kind]++ == 0) {
+            first[kind] = block;
+        }
+    }
+
+    // 检查结果
+    public static final class Result {
+        public final Implementation a;
+        public final Implementation b;
+        public final int keyFrom;
+        public final int keyTo;
+        // firstBlocks[kind][key - keyFrom]：该密钥下首个不一致的块，-1表示没有
+        final int[][] firstBlocks;
+        final LongAdder[] totals = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+
+        Result(Implementation a, Implementation b, int keyFrom, int keyTo) {
+            this.a = a;
+            this.b = b;
+            this.keyFrom = keyFrom;
+            this.keyTo = keyTo;
+            this.firstBlocks = new int[4][keyTo - keyFrom];
+        }
+
+        public long mismatches(int kind) {
+            return totals[kind].sum();
+        }
+
+        public boolean passed() {
+            for (LongAdder total : totals) {
+                if (total.sum() != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String report() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%s 对比 %s，密钥 %04X-%04X，共 %d 个(密钥,块)组合%n", a.name(), b.name(),
+                    keyFrom, keyTo - 1, (long) (keyTo - keyFrom) * KEY_SPACE));
+            for (int kind = 0; kind < 4; kind++) {
+                sb.append(String.format("  %s: %d%n", KIND_NAMES[kind], mismatches(kind)));
+            }
+            if (passed()) {
+                return sb.append("通过\n").toString();
+            }
+            int reported = 0;
+            for (int slot = 0; slot < keyTo - keyFrom && reported < MAX_REPORTED; slot++) {
+                boolean any = false;
+                for (int kind = 0; kind < 4; kind++) {
+                    int block = firstBlocks[kind][slot];
+                    if (block < 0) {
+                        continue;
+                    }
+                    any = true;
+                    int key = keyFrom + slot;
+                    sb.append(String.format("密钥 %04X 块 %04X: %s%n", key, block, KIND_NAMES[kind]));
+                    if (kind == ENCRYPT) {
+                        sb.append(traces(block, key));
+                    } else if (kind == DECRYPT) {
+                        sb.append(String.format("  %s解密=%04X  %s解密=%04X%n", a.name(),
+                                a.withKey(key).decrypt(block), b.name(), b.withKey(key).decrypt(block)));
+                    }
+                }
+                if (any) {
+                    reported++;
+                }
+            }
+            return sb.toString();
+        }
+
+        // 逐步对比两个实现的加密轨迹，标出第一个分歧的步骤
+        private String traces(int block, int key) {
+            int[] ta = a.trace(block, key);
+            int[] tb = b.trace(block, key);
+            if (ta == null || tb == null) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("  %-8s %6s %6s%n", "步骤", a.name(), b.name()));
+            boolean diverged = false;
+            for (int i = 0; i < STAGES.length; i++) {
+                String mark = "";
+                if (!diverged && ta[i] != tb[i]) {
+                    diverged = true;
+                    mark = "  <- 首次分歧";
+                }
+                sb.append(String.format("  %-8s   %04X   %04X%s%n", STAGES[i], ta[i], tb[i], mark));
+            }
+            return sb.toString();
+        }
+    }
+
+    // 命令行工具
+    //   java SAESConformance [实现A] [实现B] [起始密钥] [结束密钥]
+    //   实现为core、tool或已注册的引擎名（如table、codebook:bulk），默认core对比tool
+    //   密钥为16进制，区间左闭右开，默认全部65536个密钥
+    public static void main(String[] args) {
+        Implementation a = args.length > 0 ? implementation(args[0]) : CORE;
+        Implementation b = args.length > 1 ? implementation(args[1]) : TOOL;
+        int from = args.length > 2 ? Integer.parseInt(args[2], 16) : 0;
+        int to = args.length > 3 ? Integer.parseInt(args[3], 16) : KEY_SPACE;
+        long start = System.nanoTime();
+        Result result = check(a, b, from, to);
+        System.out.print(result.report());
+        System.out.printf("耗时 %.1f s%n", (System.nanoTime() - start) / 1e9);
+        if (!result.passed()) {
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
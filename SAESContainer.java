@@ -0,0 +1,427 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// 支持随机访问的S-AES密文容器
+// 文件布局（大端序）：
+//   [0, 64)      文件头：魔数、版本、模式、填充方式、IV/nonce、每段块数、原始长度、总块数、段数、索引位置、引擎名
+//   [64, ...)    各段密文，每块2字节
+//   [索引位置, ...) 段索引：每段 8字节文件偏移 + 2字节段IV（仅CBC使用）
+// ECB/CTR可直接定位到任意块；CBC按段独立链接，读取时只需额外读入前一个密文块
+// CTR的计数器只有16位，CTR容器最多SAESUtils.CTR_MAX_BLOCKS块（128 KiB），超出时写入失败
+public class SAESContainer {
+    public static final int MAGIC = 0x53414543; // "SAEC"
+    public static final int VERSION = 1;
+
+    // 填充方式：末块不足时补0，读取时按原始长度截断
+    public static final int PAD_NONE = 0;
+    // 填充方式：SAESCodec的PKCS#7风格填充
+    public static final int PAD_PKCS7 = 1;
+
+    // 默认每段2048块（4 KiB）
+    public static final int DEFAULT_SEGMENT_BLOCKS = 2048;
+
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = 10;
+    private static final int ENGINE_OFFSET = 42;
+    private static final int MAX_ENGINE_LENGTH = HEADER_SIZE - ENGINE_OFFSET;
+
+    // 从输入流读取全部数据，分段加密后写入容器文件
+    public static Header write(InputStream in, Path file, SAESMode mode, int key, int iv,
+                               int segmentBlocks, int padding) throws IOException {
+        if (segmentBlocks <= 0) {
+            throw new IllegalArgumentException("每段块数必须为正数");
+        }
+        if (padding != PAD_NONE && padding != PAD_PKCS7) {
+            throw new IllegalArgumentException("未知的填充方式: " + padding);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SegmentWriter writer = new SegmentWriter(channel, mode, key, iv & 0xFFFF, segmentBlocks);
+            long originalLength;
+            if (padding == PAD_PKCS7) {
+                SAESCodec.encode(in, writer);
+                writer.flush();
+                int last = writer.lastBlock;
+                originalLength = writer.totalBlocks * 2 - SAESCodec.paddingLength(new int[]{last}, 0, 1);
+            } else {
+                originalLength = writeUnpadded(in, writer);
+                writer.flush();
+            }
+
+            Header header = new Header(mode, padding, iv & 0xFFFF, segmentBlocks, originalLength,
+                    writer.totalBlocks, writer.segmentCount, writer.position, SAESEngines.bulk().name());
+            writer.writeIndex();
+            writeHeader(channel, header);
+            return header;
+        }
+    }
+
+    // 不带填充时自行按2字节打包，奇数末字节的低8位补0
+    private static long writeUnpadded(InputStream in, SegmentWriter writer) throws IOException {
+        byte[] buffer = new byte[SAESCodec.CHUNK_BLOCKS * 2];
+        int[] blocks = new int[SAESCodec.CHUNK_BLOCKS];
+        long length = 0;
+        int read;
+        while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+            int n = 0;
+            for (int i = 0; i < read; i += 2) {
+                int low = i + 1 < read ? buffer[i + 1] & 0xFF : 0;
+                blocks[n++] = ((buffer[i] & 0xFF) << 8) | low;
+            }
+            writer.accept(blocks, n);
+            length += read;
+            if (read < buffer.length) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    static void writeHeader(FileChannel channel, Header header) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        buf.putInt(MAGIC);
+        buf.put((byte) VERSION);
+        buf.put((byte) header.mode.ordinal());
+        buf.put((byte) header.padding);
+        byte[] engine = header.engine.getBytes(StandardCharsets.US_ASCII);
+        if (engine.length > MAX_ENGINE_LENGTH) {
+            throw new IllegalArgumentException("引擎名称过长: " + header.engine);
+        }
+        buf.put((byte) engine.length);
+        buf.putShort((short) header.iv);
+        buf.putInt(header.segmentBlocks);
+        buf.putLong(header.originalLength);
+        buf.putLong(header.totalBlocks);
+        buf.putInt(header.segmentCount);
+        buf.putLong(header.indexOffset);
+        buf.put(engine);
+        buf.clear();
+        writeFully(channel, buf, 0);
+    }
+
+    // 校验各字段之间以及与文件大小的一致性，之后按文件头分配索引缓冲区、访问各段时不会越界或溢出
+    static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, buf, 0);
+        buf.flip();
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("不是S-AES容器文件");
+        }
+        int version = buf.get();
+        if (version != VERSION) {
+            throw new IOException("不支持的容器版本: " + version);
+        }
+        int modeIndex = buf.get();
+        if (modeIndex < 0 || modeIndex >= SAESMode.values().length) {
+            throw new IOException("容器文件头中的模式无效: " + modeIndex);
+        }
+        SAESMode mode = SAESMode.values()[modeIndex];
+        int padding = buf.get();
+        int engineLength = buf.get();
+        int iv = buf.getShort() & 0xFFFF;
+        int segmentBlocks = buf.getInt();
+        long originalLength = buf.getLong();
+        long totalBlocks = buf.getLong();
+        int segmentCount = buf.getInt();
+        long indexOffset = buf.getLong();
+        if (padding != PAD_NONE && padding != PAD_PKCS7
+                || engineLength < 0 || engineLength > MAX_ENGINE_LENGTH || segmentBlocks <= 0
+                || originalLength < 0 || totalBlocks < 0 || segmentCount < 0
+                || indexOffset < HEADER_SIZE || totalBlocks > (indexOffset - HEADER_SIZE) / 2
+                || totalBlocks * 2 < originalLength
+                || segmentCount != (totalBlocks + segmentBlocks - 1) / segmentBlocks
+                || (long) segmentCount * INDEX_ENTRY_SIZE > Integer.MAX_VALUE
+                || indexOffset + (long) segmentCount * INDEX_ENTRY_SIZE > channel.size()
+                || (mode == SAESMode.CTR && totalBlocks > SAESUtils.CTR_MAX_BLOCKS)) {
+            throw new IOException("容器文件头已损坏");
+        }
+        byte[] engine = new byte[engineLength];
+        buf.get(engine);
+        return new Header(mode, padding, iv, segmentBlocks, originalLength, totalBlocks, segmentCount,
+                indexOffset, new String(engine, StandardCharsets.US_ASCII));
+    }
+
+    // CBC模式下每段的IV：由容器IV与段号派生，写入索引，读取时不再重新计算
+    static int segmentIv(int key, int iv, long segment) {
+        return SAESEngines.single().encryptBlock((int) ((iv + segment) & 0xFFFF), key);
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new EOFException("容器文件被截断");
+            }
+            position += n;
+        }
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    public static Reader open(Path file, int key) throws IOException {
+        return new Reader(FileChannel.open(file, StandardOpenOption.READ), key);
+    }
+
+    // 容器文件头
+    public static final class Header {
+        public final SAESMode mode;
+        public final int padding;
+        public final int iv;
+        public final int segmentBlocks;
+        public final long originalLength;
+        public final long totalBlocks;
+        public final int segmentCount;
+        public final long indexOffset;
+        public final String engine;
+
+        Header(SAESMode mode, int padding, int iv, int segmentBlocks, long originalLength, long totalBlocks,
+               int segmentCount, long indexOffset, String engine) {
+            this.mode = mode;
+            this.padding = padding;
+            this.iv = iv;
+            this.segmentBlocks = segmentBlocks;
+            this.originalLength = originalLength;
+            this.totalBlocks = totalBlocks;
+            this.segmentCount = segmentCount;
+            this.indexOffset = indexOffset;
+            this.engine = engine;
+        }
+
+        // 第segment段的块数（末段可能不满）
+        public int blocksInSegment(int segment) {
+            return (int) Math.min(segmentBlocks, totalBlocks - (long) segment * segmentBlocks);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("模式=%s 填充=%s IV=%04X 引擎=%s 原始长度=%d 总块数=%d 段数=%d 每段块数=%d",
+                    mode, padding == PAD_PKCS7 ? "PKCS7" : "无", iv, engine, originalLength, totalBlocks,
+                    segmentCount, segmentBlocks);
+        }
+    }
+
+    // 写入时把数据块攒满一段再加密落盘
+    private static final class SegmentWriter implements SAESCodec.BlockSink {
+        private final FileChannel channel;
+        private final SAESMode mode;
+        private final int key;
+        private final int iv;
+        private final int[] segment;
+        private final ByteBuffer bytes;
+        private ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_SIZE * 64);
+        private int filled;
+        private int segmentCount;
+        private long totalBlocks;
+        private long position = HEADER_SIZE;
+        private int lastBlock;
+
+        SegmentWriter(FileChannel channel, SAESMode mode, int key, int iv, int segmentBlocks) {
+            this.channel = channel;
+            this.mode = mode;
+            this.key = key;
+            this.iv = iv;
+            this.segment = new int[segmentBlocks];
+            this.bytes = ByteBuffer.allocate(segmentBlocks * 2);
+        }
+
+        @Override
+        public void accept(int[] blocks, int count) throws IOException {
+            int i = 0;
+            while (i < count) {
+                int n = Math.min(count - i, segment.length - filled);
+                System.arraycopy(blocks, i, segment, filled, n);
+                filled += n;
+                i += n;
+                if (filled == segment.length) {
+                    flush();
+                }
+            }
+            if (count > 0) {
+                lastBlock = blocks[count - 1];
+            }
+        }
+
+        void flush() throws IOException {
+            if (filled == 0) {
+                return;
+            }
+            int segmentIv = 0;
+            if (mode == SAESMode.CBC) {
+                segmentIv = segmentIv(key, iv, segmentCount);
+                SAESUtils.encryptBlocks(mode, key, segmentIv, 0, segment, 0, filled);
+            } else {
+                SAESUtils.encryptBlocks(mode, key, iv, totalBlocks, segment, 0, filled);
+            }
+            bytes.clear();
+            for (int i = 0; i < filled; i++) {
+                bytes.putShort((short) segment[i]);
+            }
+            bytes.flip();
+
+            if (index.remaining() < INDEX_ENTRY_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(index.capacity() * 2);
+                index.flip();
+                larger.put(index);
+                index = larger;
+            }
+            index.putLong(position);
+            index.putShort((short) segmentIv);
+
+            writeFully(channel, bytes, position);
+            position += filled * 2L;
+            totalBlocks += filled;
+            segmentCount++;
+            filled = 0;
+        }
+
+        void writeIndex() throws IOException {
+            index.flip();
+            writeFully(channel, index, position);
+        }
+    }
+
+    // 随机访问读取器，只读取并解密请求范围所涉及的块；可被多个线程同时使用
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final int key;
+        private final Header header;
+        private final long[] offsets;
+        private final int[] ivs;
+
+        Reader(FileChannel channel, int key) throws IOException {
+            this.channel = channel;
+            this.key = key;
+            try {
+                this.header = readHeader(channel);
+                this.offsets = new long[header.segmentCount];
+                this.ivs = new int[header.segmentCount];
+                ByteBuffer buf = ByteBuffer.allocate(header.segmentCount * INDEX_ENTRY_SIZE);
+                readFully(channel, buf, header.indexOffset);
+                buf.flip();
+                for (int i = 0; i < header.segmentCount; i++) {
+                    offsets[i] = buf.getLong();
+                    ivs[i] = buf.getShort() & 0xFFFF;
+                    if (offsets[i] < HEADER_SIZE
+                            || offsets[i] > header.indexOffset - header.blocksInSegment(i) * 2L) {
+                        throw new IOException("容器段索引已损坏");
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public Header header() {
+            return header;
+        }
+
+        // 原始明文长度（字节）
+        public long length() {
+            return header.originalLength;
+        }
+
+        // 读取明文中[position, position + length)范围，超出末尾部分被截断
+        public byte[] read(long position, int length) throws IOException {
+            if (position < 0 || length < 0) {
+                throw new IllegalArgumentException("位置和长度不能为负数");
+            }
+            long available = Math.max(0, header.originalLength - position);
+            int n = (int) Math.min(length, available);
+            byte[] out = new byte[n];
+            if (n == 0) {
+                return out;
+            }
+            long firstBlock = position >>> 1;
+            long lastBlock = (position + n - 1) >>> 1;
+            int[] plain = new int[(int) (lastBlock - firstBlock + 1)];
+            readBlocks(firstBlock, plain);
+            for (int i = 0; i < n; i++) {
+                long b = position + i;
+                int block = plain[(int) ((b >>> 1) - firstBlock)];
+                out[i] = (byte) ((b & 1) == 0 ? block >> 8 : block);
+            }
+            return out;
+        }
+
+        // 解密从firstBlock开始的plain.length个块
+        void readBlocks(long firstBlock, int[] plain) throws IOException {
+            int segmentBlocks = header.segmentBlocks;
+            long lastBlock = firstBlock + plain.length - 1;
+            int firstSegment = (int) (firstBlock / segmentBlocks);
+            int lastSegment = (int) (lastBlock / segmentBlocks);
+            for (int s = firstSegment; s <= lastSegment; s++) {
+                long segmentStart = (long) s * segmentBlocks;
+                int from = (int) (Math.max(firstBlock, segmentStart) - segmentStart);
+                int to = (int) (Math.min(lastBlock, segmentStart + header.blocksInSegment(s) - 1) - segmentStart);
+                int count = to - from + 1;
+                int target = (int) (segmentStart + from - firstBlock);
+
+                // CBC需要前一个密文块作为链接值
+                boolean chained = header.mode == SAESMode.CBC && from > 0;
+                int readFrom = chained ? from - 1 : from;
+                ByteBuffer buf = ByteBuffer.allocate((to - readFrom + 1) * 2);
+                readFully(channel, buf, offsets[s] + readFrom * 2L);
+                buf.flip();
+                int previous = chained ? buf.getShort() & 0xFFFF : ivs[s];
+                for (int i = 0; i < count; i++) {
+                    plain[target + i] = buf.getShort() & 0xFFFF;
+                }
+                if (header.mode == SAESMode.CBC) {
+                    SAESUtils.decryptBlocks(SAESMode.CBC, key, previous, 0, plain, target, count);
+                } else {
+                    SAESUtils.decryptBlocks(header.mode, key, header.iv, segmentStart + from, plain, target, count);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // 命令行工具
+    //   pack <输入文件> <容器文件> <密钥> [模式] [IV] [每段块数]   模式默认CBC（CTR最多128 KiB）
+    //   read <容器文件> <密钥> <偏移> <长度>
+    //   info <容器文件>
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && args[0].equals("pack")) {
+            SAESMode mode = args.length > 4 ? SAESMode.parse(args[4]) : SAESMode.CBC;
+            int iv = args.length > 5 ? Integer.parseInt(args[5], 16) : 0;
+            int segmentBlocks = args.length > 6 ? Integer.parseInt(args[6]) : DEFAULT_SEGMENT_BLOCKS;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[1])))) {
+                Header header = write(in, Paths.get(args[2]), mode, Integer.parseInt(args[3], 16), iv,
+                        segmentBlocks, PAD_PKCS7);
+                System.out.println(header);
+            }
+        } else if (args.length == 5 && args[0].equals("read")) {
+            try (Reader reader = open(Paths.get(args[1]), Integer.parseInt(args[2], 16))) {
+                System.out.write(reader.read(Long.parseLong(args[3]), Integer.parseInt(args[4])));
+                System.out.flush();
+            }
+        } else if (args.length == 2 && args[0].equals("info")) {
+            try (FileChannel channel = FileChannel.open(Paths.get(args[1]), StandardOpenOption.READ)) {
+                System.out.println(readHeader(channel));
+            }
+        } else {
+            System.err.println("用法: java SAESContainer pack <输入文件> <容器文件> <密钥> [模式] [IV] [每段块数]");
+            System.err.println("      java SAESContainer read <容器文件> <密钥> <偏移> <长度>");
+            System.err.println("      java SAESContainer info <容器文件>");
+        }
+    }
+}
\ No newline at end of file
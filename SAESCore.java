@@ -18,46 +18,79 @@ public class SAESCore {
     // 加密函数，返回数组[密文, 第一轮中间结果]
     public static int[] encrypt(int plaintext, int key) {
         // 密钥扩展
-        int[] w = keyExpansion(key);
+        int roundKeys = expandKey(key);
         
-        // 初始轮密钥加
-        int state = plaintext ^ ((w[0] << 8) | w[1]);
+        // 初始轮密钥加与第一轮，保存第一轮中间结果
+        int intermediateResult = encryptRound1(plaintext, key, roundKeys);
+        
+        // 第二轮
+        int state = encryptRound2(intermediateResult, roundKeys);
+        
+        return new int[]{state, intermediateResult};
+    }
+    
+    // 使用已扩展的轮密钥加密单个块，roundKeys由expandKey或SAESKeySchedule得到
+    public static int encryptBlock(int plaintext, int key, int roundKeys) {
+        return encryptRound2(encryptRound1(plaintext, key, roundKeys), roundKeys);
+    }
+    
+    // 初始轮密钥加与第一轮
+    private static int encryptRound1(int plaintext, int key, int roundKeys) {
+        // 初始轮密钥加（w0w1即原始密钥）
+        int state = plaintext ^ (key & 0xFFFF);
         
         // 第一轮
-        System.out.println("\n--- 第一轮开始 ---");
         state = subNibbles(state);
+        state = shiftRows(state);
         state = mixColumns(state);
-        state ^= ((w[2] << 8) | w[3]);
-        
-        // 保存第一轮中间结果
-        int intermediateResult = state;
-        
-        // 第二轮
+        state ^= roundKeys >>> 16;
+        return state;
+    }
+    
+    // 第二轮
+    private static int encryptRound2(int state, int roundKeys) {
         state = subNibbles(state);
         state = shiftRows(state);
-        state ^= ((w[4] << 8) | w[5]);
-        
-        return new int[]{state, intermediateResult};
+        state ^= roundKeys & 0xFFFF;
+        return state;
+    }
+    
+    // 加密各步骤后的状态，顺序见SAESConformance.STAGES
+    static int[] encryptTrace(int plaintext, int key) {
+        int roundKeys = expandKey(key);
+        int[] trace = new int[8];
+        trace[0] = plaintext ^ (key & 0xFFFF);
+        trace[1] = subNibbles(trace[0]);
+        trace[2] = shiftRows(trace[1]);
+        trace[3] = mixColumns(trace[2]);
+        trace[4] = trace[3] ^ (roundKeys >>> 16);
+        trace[5] = subNibbles(trace[4]);
+        trace[6] = shiftRows(trace[5]);
+        trace[7] = trace[6] ^ (roundKeys & 0xFFFF);
+        return trace;
     }
     
     // 解密函数
     public static int decrypt(int ciphertext, int key) {
         // 密钥扩展
-        int[] w = keyExpansion(key);
-        
+        return decryptBlock(ciphertext, key, expandKey(key));
+    }
+    
+    // 使用已扩展的轮密钥解密单个块
+    public static int decryptBlock(int ciphertext, int key, int roundKeys) {
         // 初始轮密钥加
-        int state = ciphertext ^ ((w[4] << 8) | w[5]);
+        int state = ciphertext ^ (roundKeys & 0xFFFF);
         
         // 第一轮逆操作
         state = invShiftRows(state);
         state = invSubNibbles(state);
-        state ^= ((w[2] << 8) | w[3]);
+        state ^= roundKeys >>> 16;
         state = invMixColumns(state);
         
         // 第二轮逆操作
         state = invShiftRows(state);
         state = invSubNibbles(state);
-        state ^= ((w[0] << 8) | w[1]);
+        state ^= key & 0xFFFF;
         
         return state;
     }
@@ -88,8 +121,15 @@ public class SAESCore {
         return decrypt(encrypt, key1);
     }
     
+    // 密钥扩展，返回打包的轮密钥 w2<<24 | w3<<16 | w4<<8 | w5（w0w1即原始密钥）
+    public static int expandKey(int key) {
+        int[] w = keyExpansion(key);
+        return (w[2] << 24) | (w[3] << 16) | (w[4] << 8) | w[5];
+    }
+    
     // 密钥扩展
     private static int[] keyExpansion(int key) {
+        SAESMetrics.keyExpansion();
         int[] w = new int[6];
         w[0] = (key >> 8) & 0xFF;
         w[1] = key & 0xFF;
@@ -114,7 +154,7 @@ public class SAESCore {
     }
     
     // 半字节替代
-    private static int subNibbles(int state) {
+    static int subNibbles(int state) {
         int[] nibbles = new int[4];
         nibbles[0] = (state >> 12) & 0xF;
         nibbles[1] = (state >> 8) & 0xF;
@@ -132,7 +172,7 @@ public class SAESCore {
     }
     
     // 逆半字节替代
-    private static int invSubNibbles(int state) {
+    static int invSubNibbles(int state) {
         int[] nibbles = new int[4];
         nibbles[0] = (state >> 12) & 0xF;
         nibbles[1] = (state >> 8) & 0xF;
@@ -150,7 +190,7 @@ public class SAESCore {
     }
     
     // 行移位
-    private static int shiftRows(int state) {
+    static int shiftRows(int state) {
         // 提取四个半字节
         int s00 = (state >> 12) & 0xF;
         int s01 = (state >> 8) & 0xF;
@@ -162,13 +202,13 @@ public class SAESCore {
     }
     
     // 逆行移位
-    private static int invShiftRows(int state) {
+    static int invShiftRows(int state) {
         // 逆操作与原操作相同，因为只交换一次
         return shiftRows(state);
     }
     
     // 列混淆
-    private static int mixColumns(int state) {
+    static int mixColumns(int state) {
         // 将状态表示为2x2矩阵
         // s00 s01
         // s10 s11
@@ -188,7 +228,7 @@ public class SAESCore {
     }
     
     // 逆列混淆
-    private static int invMixColumns(int state) {
+    static int invMixColumns(int state) {
         // 将状态表示为2x2矩阵
         int s00 = (state >> 12) & 0xF;
         int s01 = (state >> 8) & 0xF;
@@ -222,6 +262,15 @@ public class SAESCore {
         return (S_BOX[row1][col1] << 4) | S_BOX[row2][col2];
     }
     
+    // 按半字节值展开的S盒副本，供分析工具使用
+    static int[] sBox() {
+        int[] table = new int[16];
+        for (int i = 0; i < 16; i++) {
+            table[i] = S_BOX[(i >> 2) & 0x3][i & 0x3];
+        }
+        return table;
+    }
+    
     // 伽罗瓦域GF(2^4)上的乘法
     private static int gmul(int a, int b) {
         int p = 0;
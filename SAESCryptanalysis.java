@@ -0,0 +1,263 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+// 差分与线性分析工具
+// S盒层面：差分分布表DDT与线性逼近表LAT
+// 整个密码层面：对每个密钥生成完整的2^16密码本，
+//   差分：统计选定输入差分下所有输出差分的出现次数，跨密钥累加得到期望差分概率
+//   线性：对选定输入掩码a构造 g[E(x)] = (-1)^{a·x}，经快速Walsh-Hadamard变换一次得到全部输出掩码b的相关度，
+//         跨密钥累加相关度平方得到期望线性概率
+// 密钥按分片并行处理，每个工作线程复用自己的累加器，全程只使用基本类型数组
+public class SAESCryptanalysis {
+    static final int BLOCKS = 0x10000;
+    // 每个并行分片的密钥数
+    static final int KEYS_PER_TASK = 64;
+
+    // ---- S盒 ----
+
+    // 差分分布表：ddt[dx][dy] = #{x | S(x) ⊕ S(x ⊕ dx) = dy}
+    public static int[][] sBoxDdt() {
+        int[] s = SAESCore.sBox();
+        int[][] ddt = new int[16][16];
+        for (int dx = 0; dx < 16; dx++) {
+            for (int x = 0; x < 16; x++) {
+                ddt[dx][s[x] ^ s[x ^ dx]]++;
+            }
+        }
+        return ddt;
+    }
+
+    // 线性逼近表：lat[a][b] = #{x | a·x = b·S(x)} - 8
+    public static int[][] sBoxLat() {
+        int[] s = SAESCore.sBox();
+        int[][] lat = new int[16][16];
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                int count = 0;
+                for (int x = 0; x < 16; x++) {
+                    if (Integer.bitCount((a & x) ^ (b & s[x])) % 2 == 0) {
+                        count++;
+                    }
+                }
+                lat[a][b] = count - 8;
+            }
+        }
+        return lat;
+    }
+
+    public static String formatTable(String title, int[][] table) {
+        StringBuilder sb = new StringBuilder(title).append('\n').append("    ");
+        for (int j = 0; j < table[0].length; j++) {
+            sb.append(String.format("%3X", j));
+        }
+        sb.append('\n');
+        for (int i = 0; i < table.length; i++) {
+            sb.append(String.format("%3X:", i));
+            for (int v : table[i]) {
+                sb.append(String.format("%3d", v));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // ---- 整个密码 ----
+
+    // 默认输入差分/掩码：只有一个半字节非零的全部60个值
+    public static int[] singleNibbleValues() {
+        int[] values = new int[60];
+        int n = 0;
+        for (int nibble = 0; nibble < 4; nibble++) {
+            for (int v = 1; v < 16; v++) {
+                values[n++] = v << (12 - nibble * 4);
+            }
+        }
+        return values;
+    }
+
+    // 原地快速Walsh-Hadamard变换，长度必须为2的幂
+    public static void walshHadamard(int[] v) {
+        for (int h = 1; h < v.length; h <<= 1) {
+            for (int i = 0; i < v.length; i += h << 1) {
+                for (int j = i; j < i + h; j++) {
+                    int a = v[j];
+                    int b = v[j + h];
+                    v[j] = a + b;
+                    v[j + h] = a - b;
+                }
+            }
+        }
+    }
+
+    // 对密钥区间[keyFrom, keyTo)并行统计差分与线性特性
+    public static Result analyze(int[] inputDiffs, int[] inputMasks, int keyFrom, int keyTo) {
+        if (keyFrom < 0 || keyTo > BLOCKS || keyFrom >= keyTo) {
+            throw new IllegalArgumentException("密钥区间无效");
+        }
+        ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Worker> all = new ConcurrentLinkedQueue<>();
+        int tasks = (keyTo - keyFrom + KEYS_PER_TASK - 1) / KEYS_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(t -> {
+            Worker worker = idle.poll();
+            if (worker == null) {
+                worker = new Worker(inputDiffs, inputMasks);
+                all.add(worker);
+            }
+            SAESSearchEvent event = SAESSearchEvent.start();
+            long start = SAESMetrics.start();
+            int from = keyFrom + t * KEYS_PER_TASK;
+            int to = Math.min(keyTo, from + KEYS_PER_TASK);
+            for (int key = from; key < to; key++) {
+                worker.process(key);
+            }
+            SAESMetrics.record("cryptanalysis", SAESMetrics.ENGINE_CORE, (to - from) * BLOCKS, start);
+            event.finish("cryptanalysis", to - from, 0);
+            idle.add(worker);
+        });
+
+        Result result = new Result(inputDiffs, inputMasks, keyTo - keyFrom);
+        for (Worker worker : all) {
+            for (int i = 0; i < inputDiffs.length; i++) {
+                add(result.differentialCounts[i], worker.differentialCounts[i]);
+            }
+            for (int i = 0; i < inputMasks.length; i++) {
+                add(result.squaredCorrelations[i], worker.squaredCorrelations[i]);
+            }
+        }
+        return result;
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    // 单个工作线程的累加器与临时数组
+    private static final class Worker {
+        final int[] inputDiffs;
+        final int[] inputMasks;
+        final long[][] differentialCounts;
+        final long[][] squaredCorrelations;
+        final int[] codebook = new int[BLOCKS];
+        final int[] spectrum = new int[BLOCKS];
+
+        Worker(int[] inputDiffs, int[] inputMasks) {
+            this.inputDiffs = inputDiffs;
+            this.inputMasks = inputMasks;
+            this.differentialCounts = new long[inputDiffs.length][BLOCKS];
+            this.squaredCorrelations = new long[inputMasks.length][BLOCKS];
+        }
+
+        void process(int key) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int x = 0; x < BLOCKS; x++) {
+                codebook[x] = SAESCore.encryptBlock(x, key, roundKeys);
+            }
+            for (int i = 0; i < inputDiffs.length; i++) {
+                int dx = inputDiffs[i];
+                long[] counts = differentialCounts[i];
+                for (int x = 0; x < BLOCKS; x++) {
+                    counts[codebook[x] ^ codebook[x ^ dx]]++;
+                }
+            }
+            for (int i = 0; i < inputMasks.length; i++) {
+                int a = inputMasks[i];
+                for (int x = 0; x < BLOCKS; x++) {
+                    spectrum[codebook[x]] = (Integer.bitCount(a & x) & 1) == 0 ? 1 : -1;
+                }
+                walshHadamard(spectrum);
+                long[] squares = squaredCorrelations[i];
+                for (int b = 0; b < BLOCKS; b++) {
+                    long w = spectrum[b];
+                    squares[b] += w * w;
+                }
+            }
+        }
+    }
+
+    // 跨密钥汇总结果
+    public static final class Result {
+        public final int[] inputDiffs;
+        public final int[] inputMasks;
+        public final long keys;
+        // differentialCounts[i][dy]：输入差分inputDiffs[i]得到输出差分dy的次数（所有密钥、所有x）
+        public final long[][] differentialCounts;
+        // squaredCorrelations[i][b]：Σ_k W_k(a_i, b)^2，W为未归一化的Walsh系数
+        public final long[][] squaredCorrelations;
+
+        Result(int[] inputDiffs, int[] inputMasks, long keys) {
+            this.inputDiffs = inputDiffs;
+            this.inputMasks = inputMasks;
+            this.keys = keys;
+            this.differentialCounts = new long[inputDiffs.length][BLOCKS];
+            this.squaredCorrelations = new long[inputMasks.length][BLOCKS];
+        }
+
+        // 期望差分概率 EDP(dx -> dy)
+        public double differentialProbability(int i, int dy) {
+            return differentialCounts[i][dy] / ((double) keys * BLOCKS);
+        }
+
+        // 期望线性概率 ELP(a -> b) = 各密钥下相关度平方的平均值
+        public double linearProbability(int i, int b) {
+            return squaredCorrelations[i][b] / ((double) keys * BLOCKS * BLOCKS);
+        }
+
+        public String report() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("密钥数: ").append(keys).append('\n');
+            double bestDp = 0;
+            for (int i = 0; i < inputDiffs.length; i++) {
+                int best = 1;
+                for (int dy = 1; dy < BLOCKS; dy++) {
+                    if (differentialCounts[i][dy] > differentialCounts[i][best]) {
+                        best = dy;
+                    }
+                }
+                double p = differentialProbability(i, best);
+                bestDp = Math.max(bestDp, p);
+                sb.append(String.format("差分 %04X -> %04X  EDP=%.6f (2^%.2f)%n", inputDiffs[i], best, p, log2(p)));
+            }
+            double bestLp = 0;
+            for (int i = 0; i < inputMasks.length; i++) {
+                int best = 1;
+                for (int b = 1; b < BLOCKS; b++) {
+                    if (squaredCorrelations[i][b] > squaredCorrelations[i][best]) {
+                        best = b;
+                    }
+                }
+                double p = linearProbability(i, best);
+                bestLp = Math.max(bestLp, p);
+                sb.append(String.format("线性 %04X -> %04X  ELP=%.6f (2^%.2f)%n", inputMasks[i], best, p, log2(p)));
+            }
+            sb.append(String.format("最大EDP=2^%.2f 最大ELP=2^%.2f%n", log2(bestDp), log2(bestLp)));
+            return sb.toString();
+        }
+
+        private static double log2(double p) {
+            return p == 0 ? Double.NEGATIVE_INFINITY : Math.log(p) / Math.log(2);
+        }
+    }
+
+    // 命令行工具
+    //   sbox                      输出S盒的DDT与LAT
+    //   full [起始密钥] [结束密钥]  统计整个密码（默认全部65536个密钥），密钥为16进制，区间左闭右开
+    public static void main(String[] args) {
+        if (args.length >= 1 && args[0].equals("sbox")) {
+            System.out.print(formatTable("S盒差分分布表 DDT", sBoxDdt()));
+            System.out.print(formatTable("S盒线性逼近表 LAT", sBoxLat()));
+        } else if (args.length >= 1 && args[0].equals("full")) {
+            int from = args.length > 1 ? Integer.parseInt(args[1], 16) : 0;
+            int to = args.length > 2 ? Integer.parseInt(args[2], 16) : BLOCKS;
+            int[] values = singleNibbleValues();
+            long start = System.nanoTime();
+            Result result = analyze(values, values, from, to);
+            System.out.print(result.report());
+            System.out.printf("耗时 %.1f s%n", (System.nanoTime() - start) / 1e9);
+        } else {
+            System.err.println("用法: java SAESCryptanalysis sbox");
+            System.err.println("      java SAESCryptanalysis full [起始密钥] [结束密钥]");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 基于S-AES计数器模式的确定性随机比特生成器（仿CTR_DRBG）
+// 内部状态为密钥K与计数器V；一次填充产生 E_K(V+1) ... E_K(V+n) 共n个块放入缓冲区，
+// 随后用 E_K(V+n+1)、E_K(V+n+2) 更新K与V，已输出的数据无法由新状态倒推
+// 每输出RESEED_BLOCKS个块从共享的SecureRandom取种子重新播种；SecureRandom只在播种时访问，不在热路径上
+// 实例不是线程安全的；静态方法使用每个线程各自的实例（ThreadLocal），并发调用者之间没有任何共享锁
+// 注意：状态只有32位，适合为本工具生成演示用的密钥与IV，不能替代系统的安全随机数
+public class SAESDrbg {
+    // 一次填充的块数；同一密钥下计数器不会回绕，输出块互不重复
+    static final int BUFFER_BLOCKS = 256;
+    static final int RESEED_BLOCKS = 1 << 16;
+    static final int SEED_BYTES = 4;
+
+    private static final SecureRandom ENTROPY = new SecureRandom();
+    private static final ThreadLocal<SAESDrbg> LOCAL = ThreadLocal.withInitial(SAESDrbg::new);
+    private static final AtomicLong reseeds = new AtomicLong();
+    // 基准中防止生成结果被优化掉
+    static volatile int blackhole;
+
+    private int key;
+    private int roundKeys;
+    private int counter;
+    private final int[] buffer = new int[BUFFER_BLOCKS];
+    private int position = BUFFER_BLOCKS;
+    private long sinceReseed;
+
+    // 从SecureRandom取种子
+    public SAESDrbg() {
+        reseed();
+    }
+
+    // 固定种子（可复现，供测试与基准），之后仍按间隔从SecureRandom重新播种
+    public SAESDrbg(int seedKey, int seedCounter) {
+        setState(seedKey, seedCounter);
+    }
+
+    // 当前线程的生成器
+    public static SAESDrbg current() {
+        return LOCAL.get();
+    }
+
+    // 随机16位密钥
+    public static int newKey() {
+        return LOCAL.get().nextBlock();
+    }
+
+    // 随机16位初始化向量
+    public static int newIv() {
+        return LOCAL.get().nextBlock();
+    }
+
+    // 所有线程累计的重新播种次数
+    public static long reseedCount() {
+        return reseeds.get();
+    }
+
+    public int nextBlock() {
+        if (position == BUFFER_BLOCKS) {
+            refill();
+        }
+        int block = buffer[position];
+        buffer[position++] = 0;
+        return block;
+    }
+
+    // 批量生成16位块；整段的部分直接在目标数组中生成，不经过缓冲区
+    public void nextBlocks(int[] blocks, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > blocks.length) {
+            throw new IllegalArgumentException("数据范围越界");
+        }
+        while (length > 0 && position < BUFFER_BLOCKS) {
+            blocks[offset++] = nextBlock();
+            length--;
+        }
+        while (length >= BUFFER_BLOCKS) {
+            generate(blocks, offset, BUFFER_BLOCKS);
+            offset += BUFFER_BLOCKS;
+            length -= BUFFER_BLOCKS;
+        }
+        while (length > 0) {
+            blocks[offset++] = nextBlock();
+            length--;
+        }
+    }
+
+    public void nextBytes(byte[] bytes) {
+        nextBytes(bytes, 0, bytes.length);
+    }
+
+    public void nextBytes(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IllegalArgumentException("数据范围越界");
+        }
+        int end = offset + length;
+        while (end - offset >= 2) {
+            int block = nextBlock();
+            bytes[offset++] = (byte) (block >>> 8);
+            bytes[offset++] = (byte) block;
+        }
+        if (offset < end) {
+            bytes[offset] = (byte) (nextBlock() >>> 8);
+        }
+    }
+
+    public void nextBytes(ByteBuffer target) {
+        while (target.remaining() >= 2) {
+            target.putShort((short) nextBlock());
+        }
+        if (target.hasRemaining()) {
+            target.put((byte) (nextBlock() >>> 8));
+        }
+    }
+
+    // 混入SecureRandom的新种子
+    public void reseed() {
+        byte[] seed = new byte[SEED_BYTES];
+        ENTROPY.nextBytes(seed);
+        setState(key ^ (((seed[0] & 0xFF) << 8) | (seed[1] & 0xFF)),
+                counter ^ (((seed[2] & 0xFF) << 8) | (seed[3] & 0xFF)));
+        Arrays.fill(seed, (byte) 0);
+        reseeds.incrementAndGet();
+    }
+
+    private void setState(int newKey, int newCounter) {
+        key = newKey & 0xFFFF;
+        roundKeys = SAESKeySchedule.roundKeys(key);
+        counter = newCounter & 0xFFFF;
+        // 丢弃缓冲区中按旧状态生成的数据
+        Arrays.fill(buffer, 0);
+        position = BUFFER_BLOCKS;
+        sinceReseed = 0;
+        update();
+    }
+
+    private void refill() {
+        generate(buffer, 0, BUFFER_BLOCKS);
+        position = 0;
+    }
+
+    // 计数器模式生成length（不超过BUFFER_BLOCKS）个块，然后更新状态
+    private void generate(int[] blocks, int offset, int length) {
+        if (sinceReseed >= RESEED_BLOCKS) {
+            reseed();
+        }
+        long start = SAESMetrics.start();
+        int k = key;
+        int rk = roundKeys;
+        int v = counter;
+        for (int i = 0; i < length; i++) {
+            blocks[offset + i] = SAESTableEngine.encrypt((v + 1 + i) & 0xFFFF, k, rk);
+        }
+        counter = (v + length) & 0xFFFF;
+        sinceReseed += length;
+        update();
+        SAESMetrics.record("drbg.generate", SAESTableEngine.NAME, length, start);
+    }
+
+    // 用后续两个计数器块替换K与V
+    private void update() {
+        int newKey = SAESTableEngine.encrypt((counter + 1) & 0xFFFF, key, roundKeys);
+        int newCounter = SAESTableEngine.encrypt((counter + 2) & 0xFFFF, key, roundKeys);
+        key = newKey;
+        roundKeys = SAESKeySchedule.roundKeys(newKey);
+        counter = newCounter;
+    }
+
+    // 命令行基准：多个线程并发生成IV，统计速率；另外检查固定种子可复现、输出分布大致均匀
+    //   java SAESDrbg [线程数] [秒数]
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        int[] a = new int[1000];
+        int[] b = new int[1000];
+        new SAESDrbg(0x1234, 0x5678).nextBlocks(a, 0, a.length);
+        new SAESDrbg(0x1234, 0x5678).nextBlocks(b, 0, b.length);
+        System.out.println("固定种子可复现: " + (Arrays.equals(a, b) ? "是" : "否"));
+
+        int[] sample = new int[1 << 20];
+        current().nextBlocks(sample, 0, sample.length);
+        long ones = 0;
+        for (int x : sample) {
+            ones += Integer.bitCount(x);
+        }
+        System.out.printf("比特1所占比例: %.4f%n", ones / (16.0 * sample.length));
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong total = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                long n = 0;
+                int sink = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 4096; i++) {
+                        sink ^= newIv();
+                    }
+                    n += 4096;
+                }
+                total.addAndGet(n);
+                blackhole = sink;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("%d 个线程：%.2f 百万IV/秒，重新播种 %d 次%n", threads,
+                total.get() / (double) seconds / 1e6, reseedCount());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+// S-AES分组密码引擎接口
+// 单块方法每次调用都给出密钥，引擎自行决定如何取得轮密钥（查表、缓存等）
+// 批量与密钥搜索方法有基于单块方法的默认实现，引擎可按自己的特点重写
+// SAESCore为参考实现，其他引擎必须与其逐块一致（见SAESConformance）
+public interface SAESEngine {
+    // 引擎名称，用于按名称选择、指标与容器文件头，不超过20个ASCII字符
+    String name();
+
+    int encryptBlock(int block, int key);
+
+    int decryptBlock(int block, int key);
+
+    // 原地批量加密同一密钥下的多个块（ECB）
+    default void encrypt(int key, int[] blocks, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = encryptBlock(blocks[i], key);
+        }
+    }
+
+    // 原地批量解密同一密钥下的多个块（ECB）
+    default void decrypt(int key, int[] blocks, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = decryptBlock(blocks[i], key);
+        }
+    }
+
+    // 密钥搜索：out[outOffset + i] = E_{firstKey + i}(plaintext)，密钥按16位回绕
+    default void encryptUnderKeys(int plaintext, int firstKey, int[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = encryptBlock(plaintext, (firstKey + i) & 0xFFFF);
+        }
+    }
+}
\ No newline at end of file
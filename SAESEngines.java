@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 引擎注册表与自动选择
+// 内置引擎：core（SAESCore，参考实现）、table（按字节查表）、codebook（按密钥缓存密码本）
+// 按负载类型选择引擎：单块（每次换密钥）、批量（同一密钥大量数据）、密钥搜索（同一明文遍历密钥）
+// 系统属性：
+//   -Dsaes.engine=auto|<名称>             所有负载的默认引擎，默认auto
+//   -Dsaes.engine.single|bulk|search=...  单独指定某类负载
+// auto时首次使用该负载前在当前CPU上对全部已注册引擎做一次微基准，选最快的；
+// 基准输出与参考实现不一致的引擎直接淘汰
+public class SAESEngines {
+    // 负载类型
+    public enum Workload {
+        SINGLE, BULK, SEARCH
+    }
+
+    public static final String AUTO = "auto";
+
+    // 基准参数
+    static final int BENCH_BLOCKS = 0x4000;
+    static final int WARMUP_ROUNDS = 10;
+    static final int MEASURE_ROUNDS = 10;
+
+    private static final Map<String, SAESEngine> engines = new ConcurrentHashMap<>();
+    private static final List<String> order = new ArrayList<>();
+    private static final AtomicReferenceArray<SAESEngine> selected =
+            new AtomicReferenceArray<>(Workload.values().length);
+    private static final StringBuilder tuningReport = new StringBuilder();
+
+    private static final SAESEngine REFERENCE = new CoreEngine();
+
+    static {
+        register(REFERENCE);
+        register(new SAESTableEngine());
+        register(new SAESCodebookEngine());
+    }
+
+    // SAESCore包装为引擎，轮密钥查全局表
+    static final class CoreEngine implements SAESEngine {
+        @Override
+        public String name() {
+            return SAESMetrics.ENGINE_CORE;
+        }
+
+        @Override
+        public int encryptBlock(int block, int key) {
+            return SAESCore.encryptBlock(block, key, SAESKeySchedule.roundKeys(key));
+        }
+
+        @Override
+        public int decryptBlock(int block, int key) {
+            return SAESCore.decryptBlock(block, key, SAESKeySchedule.roundKeys(key));
+        }
+
+        @Override
+        public void encrypt(int key, int[] blocks, int offset, int length) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = SAESCore.encryptBlock(blocks[i], key, roundKeys);
+            }
+        }
+
+        @Override
+        public void decrypt(int key, int[] blocks, int offset, int length) {
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = SAESCore.decryptBlock(blocks[i], key, roundKeys);
+            }
+        }
+    }
+
+    // 注册引擎，同名引擎会被替换，已做出的自动选择随之失效
+    public static synchronized void register(SAESEngine engine) {
+        String name = engine.name();
+        if (name.isEmpty() || name.length() > 20 || !name.chars().allMatch(c -> c > 0x20 && c < 0x7F)) {
+            throw new IllegalArgumentException("引擎名称必须是1到20个可见ASCII字符: " + name);
+        }
+        if (engines.put(name, engine) == null) {
+            order.add(name);
+        }
+        for (int i = 0; i < selected.length(); i++) {
+            selected.set(i, null);
+        }
+    }
+
+    public static SAESEngine reference() {
+        return REFERENCE;
+    }
+
+    public static SAESEngine get(String name) {
+        SAESEngine engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalArgumentException("未知的引擎: " + name);
+        }
+        return engine;
+    }
+
+    public static synchronized List<String> names() {
+        return new ArrayList<>(order);
+    }
+
+    public static SAESEngine single() {
+        return forWorkload(Workload.SINGLE);
+    }
+
+    public static SAESEngine bulk() {
+        return forWorkload(Workload.BULK);
+    }
+
+    public static SAESEngine search() {
+        return forWorkload(Workload.SEARCH);
+    }
+
+    public static SAESEngine forWorkload(Workload workload) {
+        SAESEngine engine = selected.get(workload.ordinal());
+        if (engine != null) {
+            return engine;
+        }
+        return select(workload);
+    }
+
+    // 手动指定某类负载使用的引擎
+    public static synchronized void setEngine(Workload workload, SAESEngine engine) {
+        selected.set(workload.ordinal(), engine);
+    }
+
+    private static synchronized SAESEngine select(Workload workload) {
+        SAESEngine engine = selected.get(workload.ordinal());
+        if (engine != null) {
+            return engine;
+        }
+        String name = System.getProperty("saes.engine." + workload.name().toLowerCase(),
+                System.getProperty("saes.engine", AUTO));
+        engine = name.equals(AUTO) ? tune(workload) : get(name);
+        selected.set(workload.ordinal(), engine);
+        return engine;
+    }
+
+    // ---- 自动选择 ----
+
+    // 对全部已注册引擎做微基准，返回最快且输出与参考实现一致的引擎
+    static synchronized SAESEngine tune(Workload workload) {
+        int[] expected = run(REFERENCE, workload);
+        SAESEngine best = REFERENCE;
+        long bestNanos = Long.MAX_VALUE;
+        tuningReport.append(workload.name().toLowerCase()).append(':');
+        for (String name : order) {
+            SAESEngine engine = engines.get(name);
+            if (!Arrays.equals(run(engine, workload), expected)) {
+                tuningReport.append(' ').append(name).append("=不一致");
+                continue;
+            }
+            long nanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++) {
+                long start = System.nanoTime();
+                run(engine, workload);
+                long elapsed = System.nanoTime() - start;
+                if (round >= WARMUP_ROUNDS) {
+                    nanos = Math.min(nanos, elapsed);
+                }
+            }
+            tuningReport.append(String.format(" %s=%.1fns/块", name, (double) nanos / BENCH_BLOCKS));
+            if (nanos < bestNanos) {
+                bestNanos = nanos;
+                best = engine;
+            }
+        }
+        tuningReport.append(" -> ").append(best.name()).append('\n');
+        return best;
+    }
+
+    // 各负载的基准内容，返回输出供一致性比较
+    private static int[] run(SAESEngine engine, Workload workload) {
+        int[] out = new int[BENCH_BLOCKS];
+        switch (workload) {
+            case SINGLE:
+                // 每块换一个密钥
+                for (int i = 0; i < BENCH_BLOCKS; i++) {
+                    out[i] = engine.encryptBlock(i, (i * 0x9E37) & 0xFFFF);
+                }
+                for (int i = 0; i < BENCH_BLOCKS; i += 2) {
+                    out[i] = engine.decryptBlock(out[i], (i * 0x9E37) & 0xFFFF);
+                }
+                break;
+            case BULK:
+                // 同一密钥反复处理整段数据，与分块流式加密的稳定状态一致
+                for (int i = 0; i < BENCH_BLOCKS; i++) {
+                    out[i] = (i * 0x6B43) & 0xFFFF;
+                }
+                engine.encrypt(0x2D55, out, 0, BENCH_BLOCKS);
+                engine.decrypt(0x2D55, out, 0, BENCH_BLOCKS / 2);
+                break;
+            case SEARCH:
+                engine.encryptUnderKeys(0x6F6B, 0, out, 0, BENCH_BLOCKS);
+                break;
+        }
+        return out;
+    }
+
+    public static synchronized String tuningReport() {
+        return tuningReport.toString();
+    }
+
+    // 命令行工具：运行自动选择并输出各负载的结果
+    public static void main(String[] args) {
+        System.out.println("已注册引擎: " + names());
+        for (Workload workload : Workload.values()) {
+            System.out.println(workload.name().toLowerCase() + " -> " + forWorkload(workload).name());
+        }
+        System.out.print(tuningReport());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+// GF(2^16)上的运算，约化多项式 x^16 + x^5 + x^3 + x^2 + 1（本原多项式）
+// 供MAC中的子密钥派生、偏移量计算等使用
+public class SAESGF16 {
+    public static final int POLY = 0x002D;
+
+    // 乘以x
+    public static int dbl(int a) {
+        a &= 0xFFFF;
+        return ((a << 1) ^ ((a >> 15) * POLY)) & 0xFFFF;
+    }
+
+    // 乘以x的逆元
+    public static int half(int a) {
+        a &= 0xFFFF;
+        return (a & 1) == 0 ? a >> 1 : ((a ^ POLY) >> 1) | 0x8000;
+    }
+
+    // 逐位乘法
+    public static int mul(int a, int b) {
+        a &= 0xFFFF;
+        int p = 0;
+        for (int i = 15; i >= 0; i--) {
+            p = dbl(p);
+            if (((b >> i) & 1) != 0) {
+                p ^= a;
+            }
+        }
+        return p;
+    }
+
+    // 幂运算a^n（平方-乘）
+    public static int pow(int a, long n) {
+        int result = 1;
+        int base = a & 0xFFFF;
+        while (n > 0) {
+            if ((n & 1) != 0) {
+                result = mul(result, base);
+            }
+            base = mul(base, base);
+            n >>>= 1;
+        }
+        return result;
+    }
+
+    // 固定乘数的8位分表（Shoup方法）：a·h = HIGH[a的高字节] ⊕ LOW[a的低字节]，乘法对加法线性
+    public static final class Multiplier {
+        private final int[] high = new int[256];
+        private final int[] low = new int[256];
+
+        public Multiplier(int h) {
+            for (int b = 0; b < 256; b++) {
+                high[b] = SAESGF16.mul(b << 8, h);
+                low[b] = SAESGF16.mul(b, h);
+            }
+        }
+
+        public int mul(int a) {
+            return high[(a >>> 8) & 0xFF] ^ low[a & 0xFF];
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,342 @@
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import javax.crypto.AEADBadTagException;
+
+// 类GCM的认证加密（16位分组、16位标签）
+//   H = E_K(0)；第i块（从0开始）的密钥流为 E_K(nonce + 1 + i)，标签掩码为 E_K(nonce)
+//   GHASH：Y = (Y ⊕ X)·H，依次吸收附加数据（末块补0）、密文（末块补0）、
+//          长度块[附加数据字节数高16位, 低16位, 密文字节数高16位, 低16位]
+//   标签 = GHASH ⊕ E_K(nonce)
+// 乘以H使用8位Shoup分表（SAESGF16.Multiplier）；
+// CTR与GHASH都按分片并行：分片i从0起独立做Horner，合并时 Y = Y·H^n ⊕ Y_i
+// 计数器只有16位且不回绕：计数器0保留给H，消息用到的区间[nonce, nonce + 块数]必须落在[1, 0xFFFF]内，
+// 即nonce不能为0，且nonce + 块数 <= 0xFFFF；否则密钥流会经过E_K(0) = H，泄露GHASH密钥而可伪造消息
+// 因此同一nonce最多处理MAX_BLOCKS块（nonce为1时，约128 KiB），更长的数据需分成多条消息；
+// 同一密钥下nonce不得重复，且不同消息的计数器区间不应重叠
+// 解密时update()只缓存密文并累加GHASH，doFinal()校验标签通过后才解密并返回明文
+public class SAESGcm {
+    public static final int TAG_BYTES = 2;
+    public static final int MAX_BLOCKS = 0xFFFE;
+    static final int MAX_COUNTER = 0xFFFF;
+    // 并行分片的块数
+    static final int CHUNK_BLOCKS = 4096;
+    static final int PARALLEL_THRESHOLD = CHUNK_BLOCKS * 2;
+
+    private final int key;
+    private final SAESGF16.Multiplier h;
+    // 整个分片的乘数 H^CHUNK_BLOCKS
+    private final SAESGF16.Multiplier hChunk;
+    private final int hValue;
+
+    public SAESGcm(int key) {
+        this.key = key & 0xFFFF;
+        this.hValue = SAESEngines.single().encryptBlock(0, this.key);
+        this.h = new SAESGF16.Multiplier(hValue);
+        this.hChunk = new SAESGF16.Multiplier(SAESGF16.pow(hValue, CHUNK_BLOCKS));
+    }
+
+    // ---- 公共部分 ----
+
+    // 第firstBlock块起的length块与密钥流异或，分片并行
+    private void ctr(int nonce, long firstBlock, int[] blocks, int offset, int length) {
+        SAESEngine engine = SAESEngines.bulk();
+        int chunks = (length + CHUNK_BLOCKS - 1) / CHUNK_BLOCKS;
+        IntStream range = IntStream.range(0, chunks);
+        (length >= PARALLEL_THRESHOLD ? range.parallel() : range).forEach(c -> {
+            int from = c * CHUNK_BLOCKS;
+            int n = Math.min(CHUNK_BLOCKS, length - from);
+            int[] keystream = new int[n];
+            int counter = (int) ((nonce + 1 + firstBlock + from) & 0xFFFF);
+            for (int i = 0; i < n; i++) {
+                keystream[i] = (counter + i) & 0xFFFF;
+            }
+            engine.encrypt(key, keystream, 0, n);
+            for (int i = 0; i < n; i++) {
+                blocks[offset + from + i] ^= keystream[i];
+            }
+        });
+    }
+
+    // 从y开始吸收length个块，返回新的GHASH状态；块数较多时分片并行
+    private int ghash(int y, int[] blocks, int offset, int length) {
+        if (length < PARALLEL_THRESHOLD) {
+            for (int i = offset; i < offset + length; i++) {
+                y = h.mul(y ^ blocks[i]);
+            }
+            return y;
+        }
+        int chunks = (length + CHUNK_BLOCKS - 1) / CHUNK_BLOCKS;
+        int[] partial = new int[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = offset + c * CHUNK_BLOCKS;
+            int to = Math.min(from + CHUNK_BLOCKS, offset + length);
+            int z = 0;
+            for (int i = from; i < to; i++) {
+                z = h.mul(z ^ blocks[i]);
+            }
+            partial[c] = z;
+        });
+        for (int c = 0; c < chunks; c++) {
+            int n = Math.min(CHUNK_BLOCKS, length - c * CHUNK_BLOCKS);
+            y = (n == CHUNK_BLOCKS ? hChunk.mul(y) : SAESGF16.mul(y, SAESGF16.pow(hValue, n))) ^ partial[c];
+        }
+        return y;
+    }
+
+    private static int[] toBlocks(byte[] data, int offset, int count) {
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            blocks[i] = ((data[offset + 2 * i] & 0xFF) << 8) | (data[offset + 2 * i + 1] & 0xFF);
+        }
+        return blocks;
+    }
+
+    private static void toBytes(int[] blocks, byte[] out, int offset) {
+        for (int i = 0; i < blocks.length; i++) {
+            out[offset + 2 * i] = (byte) (blocks[i] >> 8);
+            out[offset + 2 * i + 1] = (byte) blocks[i];
+        }
+    }
+
+    // 附加数据的GHASH（末块补0）
+    private int hashAad(byte[] aad) {
+        int[] blocks = toBlocks(aad, 0, aad.length / 2);
+        int y = ghash(0, blocks, 0, blocks.length);
+        if ((aad.length & 1) != 0) {
+            y = h.mul(y ^ ((aad[aad.length - 1] & 0xFF) << 8));
+        }
+        return y;
+    }
+
+    // 吸收末尾不完整块与长度块，返回标签
+    private int tag(int nonce, int y, int lastByte, long aadBytes, long dataBytes) {
+        if (lastByte >= 0) {
+            y = h.mul(y ^ (lastByte << 8));
+        }
+        y = h.mul(y ^ (int) ((aadBytes >>> 16) & 0xFFFF));
+        y = h.mul(y ^ (int) (aadBytes & 0xFFFF));
+        y = h.mul(y ^ (int) ((dataBytes >>> 16) & 0xFFFF));
+        y = h.mul(y ^ (int) (dataBytes & 0xFFFF));
+        return y ^ SAESEngines.single().encryptBlock(nonce & 0xFFFF, key);
+    }
+
+    // 流式处理的共同状态：GHASH状态、已处理块数、待凑成整块的奇数字节
+    private abstract class Session {
+        final int nonce;
+        final long aadBytes;
+        int y;
+        long blocks;
+        long dataBytes;
+        int pending = -1;
+        final long start = SAESMetrics.start();
+        boolean finished;
+
+        Session(int nonce, byte[] aad) {
+            if ((nonce & 0xFFFF) == 0) {
+                throw new IllegalArgumentException("nonce不能为0：计数器0保留用于派生H");
+            }
+            this.nonce = nonce & 0xFFFF;
+            this.aadBytes = aad.length;
+            this.y = hashAad(aad);
+        }
+
+        // 把输入拼接上次留下的奇数字节，返回完整块，奇数字节留到下次
+        int[] take(byte[] data, int offset, int length) {
+            if (finished) {
+                throw new IllegalStateException("消息已结束");
+            }
+            dataBytes += length;
+            byte[] joined = data;
+            int from = offset;
+            int total = length;
+            if (pending >= 0 && length > 0) {
+                joined = new byte[length + 1];
+                joined[0] = (byte) pending;
+                System.arraycopy(data, offset, joined, 1, length);
+                from = 0;
+                total = length + 1;
+                pending = -1;
+            }
+            int count = total / 2;
+            if ((total & 1) != 0) {
+                pending = joined[from + total - 1] & 0xFF;
+            }
+            // 计数器区间[nonce, nonce + 块数]不能超过0xFFFF而回绕经过保留的计数器0
+            if (blocks + count + (pending >= 0 ? 1 : 0) > MAX_COUNTER - nonce) {
+                throw new IllegalStateException(String.format("nonce %04X 最多处理 %d 块，计数器不能回绕经过0",
+                        nonce, MAX_COUNTER - nonce));
+            }
+            return toBlocks(joined, from, count);
+        }
+
+        void record(String operation) {
+            SAESMetrics.record(operation, SAESEngines.bulk().name(), (int) blocks, start);
+        }
+    }
+
+    // 加密会话：update()立即输出完整块的密文，doFinal()输出剩余密文和标签
+    public final class Encryptor extends Session {
+        Encryptor(int nonce, byte[] aad) {
+            super(nonce, aad);
+        }
+
+        public byte[] update(byte[] data, int offset, int length) {
+            int[] blocks = take(data, offset, length);
+            ctr(nonce, this.blocks, blocks, 0, blocks.length);
+            y = ghash(y, blocks, 0, blocks.length);
+            this.blocks += blocks.length;
+            byte[] out = new byte[blocks.length * 2];
+            toBytes(blocks, out, 0);
+            return out;
+        }
+
+        // 返回剩余密文（0或1字节）后接2字节标签
+        public byte[] doFinal() {
+            finished = true;
+            int lastByte = -1;
+            byte[] out;
+            if (pending >= 0) {
+                int[] last = {pending << 8};
+                ctr(nonce, blocks, last, 0, 1);
+                lastByte = (last[0] >> 8) & 0xFF;
+                out = new byte[1 + TAG_BYTES];
+                out[0] = (byte) lastByte;
+            } else {
+                out = new byte[TAG_BYTES];
+            }
+            int tag = tag(nonce, y, lastByte, aadBytes, dataBytes);
+            out[out.length - 2] = (byte) (tag >> 8);
+            out[out.length - 1] = (byte) tag;
+            record("gcm.encrypt");
+            return out;
+        }
+    }
+
+    // 解密会话：update()只缓存密文并累加GHASH，不输出明文；doFinal()校验标签后解密全部数据
+    public final class Decryptor extends Session {
+        private final ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+
+        Decryptor(int nonce, byte[] aad) {
+            super(nonce, aad);
+        }
+
+        public void update(byte[] data, int offset, int length) {
+            int[] blocks = take(data, offset, length);
+            y = ghash(y, blocks, 0, blocks.length);
+            this.blocks += blocks.length;
+            ciphertext.write(data, offset, length);
+        }
+
+        // 标签不一致时抛出AEADBadTagException，不返回任何明文
+        public byte[] doFinal(int expectedTag) throws AEADBadTagException {
+            finished = true;
+            int tag = tag(nonce, y, pending, aadBytes, dataBytes);
+            if (!SAESCmac.tagEquals(tag, expectedTag)) {
+                throw new AEADBadTagException("认证标签不一致");
+            }
+            byte[] data = ciphertext.toByteArray();
+            int[] all = Arrays.copyOf(toBlocks(data, 0, data.length / 2), (data.length + 1) / 2);
+            if ((data.length & 1) != 0) {
+                all[all.length - 1] = (data[data.length - 1] & 0xFF) << 8;
+            }
+            ctr(nonce, 0, all, 0, all.length);
+            byte[] plain = new byte[data.length];
+            for (int i = 0; i < data.length; i++) {
+                plain[i] = (byte) ((i & 1) == 0 ? all[i >> 1] >> 8 : all[i >> 1]);
+            }
+            record("gcm.decrypt");
+            return plain;
+        }
+    }
+
+    public Encryptor encryptor(int nonce, byte[] aad) {
+        return new Encryptor(nonce, aad);
+    }
+
+    public Decryptor decryptor(int nonce, byte[] aad) {
+        return new Decryptor(nonce, aad);
+    }
+
+    // 一次性加密，返回密文后接2字节标签
+    public byte[] seal(int nonce, byte[] aad, byte[] plaintext) {
+        Encryptor encryptor = encryptor(nonce, aad);
+        byte[] body = encryptor.update(plaintext, 0, plaintext.length);
+        byte[] tail = encryptor.doFinal();
+        byte[] out = Arrays.copyOf(body, body.length + tail.length);
+        System.arraycopy(tail, 0, out, body.length, tail.length);
+        return out;
+    }
+
+    // 一次性解密seal的输出
+    public byte[] open(int nonce, byte[] aad, byte[] sealed) throws AEADBadTagException {
+        if (sealed.length < TAG_BYTES) {
+            throw new AEADBadTagException("密文过短");
+        }
+        int length = sealed.length - TAG_BYTES;
+        Decryptor decryptor = decryptor(nonce, aad);
+        decryptor.update(sealed, 0, length);
+        return decryptor.doFinal(((sealed[length] & 0xFF) << 8) | (sealed[length + 1] & 0xFF));
+    }
+
+    // 命令行：正确性检查（分段与一次性结果一致、篡改被拒绝）与吞吐量，与CBC加密+CMAC两趟比较
+    //   java SAESGcm [消息字节数] [轮数]
+    public static void main(String[] args) throws AEADBadTagException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : MAX_BLOCKS * 2 - 1;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        SAESGcm gcm = new SAESGcm(0x2D55);
+        byte[] aad = "header".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        byte[] message = new byte[size];
+        new Random(1).nextBytes(message);
+
+        byte[] sealed = gcm.seal(0x0001, aad, message);
+        Encryptor encryptor = gcm.encryptor(0x0001, aad);
+        ByteArrayOutputStream pieces = new ByteArrayOutputStream();
+        Random split = new Random(2);
+        for (int offset = 0; offset < size; ) {
+            int n = Math.min(size - offset, split.nextInt(5000));
+            pieces.writeBytes(encryptor.update(message, offset, n));
+            offset += n;
+        }
+        pieces.writeBytes(encryptor.doFinal());
+        System.out.println("分段加密与一次性加密: " + (Arrays.equals(sealed, pieces.toByteArray()) ? "一致" : "不一致"));
+        System.out.println("解密往返: " + (Arrays.equals(message, gcm.open(0x0001, aad, sealed)) ? "一致" : "不一致"));
+        sealed[size / 2] ^= 1;
+        try {
+            gcm.open(0x0001, aad, sealed);
+            System.out.println("篡改未被发现");
+        } catch (AEADBadTagException e) {
+            System.out.println("篡改被拒绝: " + e.getMessage());
+        }
+        // 计数器区间会回绕经过0（密钥流将含有H）的nonce与长度组合必须被拒绝
+        try {
+            gcm.seal(0x0100, aad, new byte[(MAX_COUNTER - 0x0100) * 2 + 1]);
+            System.out.println("回绕的计数器区间未被拒绝");
+        } catch (IllegalStateException e) {
+            System.out.println("回绕的计数器区间被拒绝: " + e.getMessage());
+        }
+        try {
+            gcm.seal(0, aad, new byte[2]);
+            System.out.println("nonce 0未被拒绝");
+        } catch (IllegalArgumentException e) {
+            System.out.println("nonce 0被拒绝: " + e.getMessage());
+        }
+
+        long start = System.nanoTime();
+        // 基准只测吞吐量，各轮复用nonce 1（实际使用中nonce不得重复）
+        for (int r = 0; r < rounds; r++) {
+            gcm.seal(1, aad, message);
+        }
+        double gcmSeconds = (System.nanoTime() - start) / 1e9;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            int[] blocks = SAESCodec.encodeBytes(message, 0, size);
+            SAESUtils.encryptBlocks(SAESMode.CBC, 0x2D55, r, 0, blocks, 0, blocks.length);
+            SAESCmac.mac(0x4B5C, message, 0, size);
+        }
+        double cbcSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("GCM %.1f MB/s，CBC加密+CMAC %.1f MB/s%n",
+                (double) size * rounds / gcmSeconds / 1e6, (double) size * rounds / cbcSeconds / 1e6);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// 以S-AES为压缩原语的散列函数，128位摘要
+// 状态为8道16位链值，每个消息块16字节（8个字）；压缩函数做4轮级联：
+//   偶数轮Davies–Meyer：s[j] = E_{w ^ s[j-1]}(s[j]) ^ s[j]（消息字作密钥）
+//   奇数轮MMO：x = s[j] ^ w，s[j] = E_{s[j-1]}(x) ^ x（前一道作密钥）
+// 每轮消息字按轮错位分配给各道，前一道的新值立即参与下一道，使8道互相扩散；最后与链值、消息前馈
+// 顺序模式：Merkle–Damgård，10*填充并在末尾附64位比特长度
+// 树模式：64 KiB为一个叶子，叶子之间并行计算；子树摘要用栈逐步合并，只保留O(log n)个摘要
+// 叶子、父节点、根各自以不同标志异或初始值的最后一道作域分隔，根另外吸收总长度
+// 当前实例不是线程安全的；树模式内部的并行由公共ForkJoinPool完成
+public class SAESHash {
+    public enum Mode { SEQUENTIAL, TREE }
+
+    public static final int DIGEST_BYTES = 16;
+    public static final int LEAF_BYTES = 64 * 1024;
+    static final int LANES = 8;
+    static final int BLOCK_BYTES = LANES * 2;
+    static final int ROUNDS = 4;
+    static final int FLAG_LEAF = 1;
+    static final int FLAG_PARENT = 2;
+    static final int FLAG_ROOT = 4;
+    // 文件按此大小读入，一次可并行计算多个叶子
+    static final int FILE_CHUNK = LEAF_BYTES * 64;
+
+    // 初始值：前8个素数平方根小数部分的高16位
+    private static final int[] IV = {0x6A09, 0xBB67, 0x3C6E, 0xA54F, 0x510E, 0x9B05, 0x1F83, 0x5BE0};
+    // 轮常量，避免各道、各轮的计算相同
+    private static final int[] CONSTANTS = new int[ROUNDS * LANES];
+
+    static {
+        for (int i = 0; i < CONSTANTS.length; i++) {
+            CONSTANTS[i] = ((i + 1) * 0x9E37) & 0xFFFF;
+        }
+    }
+
+    private final Mode mode;
+    private final Chain chain;
+    // 树模式：已完成的子树摘要（栈底为最左、最大的子树）
+    private final List<int[]> stack = new ArrayList<>();
+    private long leaves;
+    private int leafFill;
+    private long length;
+    private long start = SAESMetrics.start();
+
+    public SAESHash() {
+        this(Mode.SEQUENTIAL);
+    }
+
+    public SAESHash(Mode mode) {
+        this.mode = mode;
+        this.chain = new Chain(mode == Mode.TREE ? FLAG_LEAF : 0);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void update(byte[] data) {
+        update(data, 0, data.length);
+    }
+
+    public void update(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IllegalArgumentException("数据范围越界");
+        }
+        this.length += length;
+        if (mode == Mode.SEQUENTIAL) {
+            chain.update(data, offset, length);
+            return;
+        }
+        // 先补满当前未完成的叶子
+        if (leafFill > 0) {
+            int n = Math.min(length, LEAF_BYTES - leafFill);
+            chain.update(data, offset, n);
+            leafFill += n;
+            offset += n;
+            length -= n;
+            if (leafFill == LEAF_BYTES) {
+                push(chain.finish());
+                chain.reset(FLAG_LEAF);
+                leafFill = 0;
+            }
+        }
+        // 完整的叶子直接从调用者数组并行计算
+        int full = length / LEAF_BYTES;
+        if (full > 0) {
+            int[][] digests = new int[full][];
+            int base = offset;
+            IntStream range = IntStream.range(0, full);
+            (full > 1 ? range.parallel() : range)
+                    .forEach(i -> digests[i] = hashLeaf(data, base + i * LEAF_BYTES, LEAF_BYTES));
+            for (int[] digest : digests) {
+                push(digest);
+            }
+            offset += full * LEAF_BYTES;
+            length -= full * LEAF_BYTES;
+        }
+        if (length > 0) {
+            chain.update(data, offset, length);
+            leafFill += length;
+        }
+    }
+
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int n = buffer.remaining();
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), n);
+            buffer.position(buffer.position() + n);
+            return;
+        }
+        byte[] copy = new byte[Math.min(buffer.remaining(), FILE_CHUNK)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(buffer.remaining(), copy.length);
+            buffer.get(copy, 0, n);
+            update(copy, 0, n);
+        }
+    }
+
+    // 计算摘要并重置状态
+    public byte[] doFinal() {
+        int[] digest;
+        if (mode == Mode.SEQUENTIAL) {
+            digest = chain.finish();
+        } else {
+            // 最后一个不完整的叶子；空消息视为一个空叶子
+            if (leafFill > 0 || leaves == 0) {
+                push(chain.finish());
+            }
+            while (stack.size() > 1) {
+                merge();
+            }
+            digest = root(stack.get(0), length);
+        }
+        SAESMetrics.record(mode == Mode.SEQUENTIAL ? "hash.sequential" : "hash.tree", SAESTableEngine.NAME,
+                (int) Math.min(Integer.MAX_VALUE, length / BLOCK_BYTES + 1), start);
+        reset();
+        return toBytes(digest);
+    }
+
+    public void reset() {
+        chain.reset(mode == Mode.TREE ? FLAG_LEAF : 0);
+        stack.clear();
+        leaves = 0;
+        leafFill = 0;
+        length = 0;
+        start = SAESMetrics.start();
+    }
+
+    // 压入一个叶子摘要；第n个叶子完成后，按n的末尾0个数合并相邻的等大子树
+    private void push(int[] digest) {
+        stack.add(digest);
+        leaves++;
+        for (long n = leaves; (n & 1) == 0; n >>>= 1) {
+            merge();
+        }
+    }
+
+    private void merge() {
+        int[] right = stack.remove(stack.size() - 1);
+        int[] left = stack.remove(stack.size() - 1);
+        stack.add(parent(left, right));
+    }
+
+    // 一次性计算
+    public static byte[] hash(Mode mode, byte[] data) {
+        SAESHash hash = new SAESHash(mode);
+        hash.update(data);
+        return hash.doFinal();
+    }
+
+    // 文件指纹：按块读入，树模式下每块内的叶子并行计算
+    public static byte[] hashFile(Mode mode, Path path) throws IOException {
+        SAESHash hash = new SAESHash(mode);
+        byte[] buffer = new byte[FILE_CHUNK];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            while (true) {
+                wrapped.clear();
+                while (wrapped.hasRemaining() && channel.read(wrapped) >= 0) {
+                    // 读满一块或到文件末尾
+                }
+                if (wrapped.position() == 0) {
+                    break;
+                }
+                hash.update(buffer, 0, wrapped.position());
+                if (wrapped.hasRemaining()) {
+                    break;
+                }
+            }
+        }
+        return hash.doFinal();
+    }
+
+    public static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    static int[] hashLeaf(byte[] data, int offset, int length) {
+        Chain chain = new Chain(FLAG_LEAF);
+        chain.update(data, offset, length);
+        return chain.finish();
+    }
+
+    // 父节点：左右两个摘要恰好是两个消息块，长度固定，无需填充
+    static int[] parent(int[] left, int[] right) {
+        Chain chain = new Chain(FLAG_PARENT);
+        chain.absorb(left);
+        chain.absorb(right);
+        return chain.state();
+    }
+
+    // 根：吸收最终的子树摘要与消息总比特长度
+    static int[] root(int[] node, long length) {
+        Chain chain = new Chain(FLAG_ROOT);
+        chain.absorb(node);
+        long bits = length << 3;
+        chain.absorb(new int[]{(int) (bits >>> 48) & 0xFFFF, (int) (bits >>> 32) & 0xFFFF,
+                (int) (bits >>> 16) & 0xFFFF, (int) bits & 0xFFFF, 0, 0, 0, 0});
+        return chain.state();
+    }
+
+    static byte[] toBytes(int[] words) {
+        byte[] out = new byte[words.length * 2];
+        for (int i = 0; i < words.length; i++) {
+            out[2 * i] = (byte) (words[i] >>> 8);
+            out[2 * i + 1] = (byte) words[i];
+        }
+        return out;
+    }
+
+    // 压缩函数：h为链值（原地更新），m为8个消息字，s为工作区
+    static void compress(int[] h, int[] m, int[] s) {
+        System.arraycopy(h, 0, s, 0, LANES);
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int j = 0; j < LANES; j++) {
+                int prev = s[(j + LANES - 1) & (LANES - 1)];
+                int w = m[(j + r * 3) & (LANES - 1)] ^ CONSTANTS[r * LANES + j];
+                if ((r & 1) == 0) {
+                    int key = w ^ prev;
+                    s[j] ^= SAESTableEngine.encrypt(s[j], key, SAESKeySchedule.roundKeys(key));
+                } else {
+                    int x = s[j] ^ w;
+                    s[j] = SAESTableEngine.encrypt(x, prev, SAESKeySchedule.roundKeys(prev)) ^ x;
+                }
+            }
+        }
+        for (int j = 0; j < LANES; j++) {
+            h[j] ^= s[j] ^ m[j];
+        }
+    }
+
+    // Merkle–Damgård链：顺序模式与每个叶子各用一个
+    static final class Chain {
+        private final int[] h = new int[LANES];
+        private final int[] m = new int[LANES];
+        private final int[] s = new int[LANES];
+        private final byte[] buffer = new byte[BLOCK_BYTES];
+        private int buffered;
+        private long length;
+
+        Chain(int flags) {
+            reset(flags);
+        }
+
+        void reset(int flags) {
+            System.arraycopy(IV, 0, h, 0, LANES);
+            h[LANES - 1] ^= flags;
+            buffered = 0;
+            length = 0;
+        }
+
+        void update(byte[] data, int offset, int length) {
+            this.length += length;
+            if (buffered > 0) {
+                int n = Math.min(length, BLOCK_BYTES - buffered);
+                System.arraycopy(data, offset, buffer, buffered, n);
+                buffered += n;
+                offset += n;
+                length -= n;
+                if (buffered < BLOCK_BYTES) {
+                    return;
+                }
+                block(buffer, 0);
+                buffered = 0;
+            }
+            while (length >= BLOCK_BYTES) {
+                block(data, offset);
+                offset += BLOCK_BYTES;
+                length -= BLOCK_BYTES;
+            }
+            System.arraycopy(data, offset, buffer, 0, length);
+            buffered = length;
+        }
+
+        private void block(byte[] data, int offset) {
+            for (int j = 0; j < LANES; j++) {
+                m[j] = ((data[offset + 2 * j] & 0xFF) << 8) | (data[offset + 2 * j + 1] & 0xFF);
+            }
+            compress(h, m, s);
+        }
+
+        void absorb(int[] words) {
+            System.arraycopy(words, 0, m, 0, LANES);
+            compress(h, m, s);
+        }
+
+        int[] state() {
+            return h.clone();
+        }
+
+        // 10*填充 + 64位比特长度，返回摘要（之后需reset才能复用）
+        int[] finish() {
+            long bits = length << 3;
+            buffer[buffered++] = (byte) 0x80;
+            if (buffered > BLOCK_BYTES - 8) {
+                Arrays.fill(buffer, buffered, BLOCK_BYTES, (byte) 0);
+                block(buffer, 0);
+                buffered = 0;
+            }
+            Arrays.fill(buffer, buffered, BLOCK_BYTES - 8, (byte) 0);
+            for (int i = 0; i < 8; i++) {
+                buffer[BLOCK_BYTES - 1 - i] = (byte) (bits >>> (8 * i));
+            }
+            block(buffer, 0);
+            return state();
+        }
+    }
+
+    // 命令行：
+    //   java SAESHash [seq|tree] 文件...   输出每个文件的摘要
+    //   java SAESHash bench [MB]           比较顺序与树模式吞吐量，并校验分片流式输入与一次性输入一致
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("bench")) {
+            bench(args.length > 1 ? Integer.parseInt(args[1]) : 16);
+            return;
+        }
+        Mode mode = Mode.TREE;
+        int first = 0;
+        if (args.length > 0 && (args[0].equals("seq") || args[0].equals("tree"))) {
+            mode = args[0].equals("seq") ? Mode.SEQUENTIAL : Mode.TREE;
+            first = 1;
+        }
+        if (first >= args.length) {
+            System.out.println("用法: java SAESHash [seq|tree] 文件... | bench [MB]");
+            return;
+        }
+        for (int i = first; i < args.length; i++) {
+            System.out.println(toHex(hashFile(mode, Paths.get(args[i]))) + "  " + args[i]);
+        }
+    }
+
+    private static void bench(int megabytes) {
+        byte[] data = new byte[megabytes << 20];
+        new Random(1).nextBytes(data);
+        Random random = new Random(2);
+        for (Mode mode : Mode.values()) {
+            byte[] expected = hash(mode, data);
+            // 随机长度分片输入
+            SAESHash hash = new SAESHash(mode);
+            for (int offset = 0; offset < data.length; ) {
+                int n = Math.min(data.length - offset, random.nextInt(3 * LEAF_BYTES));
+                hash.update(data, offset, n);
+                offset += n;
+            }
+            boolean same = Arrays.equals(expected, hash.doFinal());
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long t0 = System.nanoTime();
+                hash(mode, data);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("%-10s %s  分片一致: %s  %.1f MB/s%n", mode, toHex(expected), same ? "是" : "否",
+                    data.length / (best / 1e9) / 1e6);
+        }
+        System.out.printf("空消息: %s / %s%n", toHex(hash(Mode.SEQUENTIAL, new byte[0])),
+                toHex(hash(Mode.TREE, new byte[0])));
+        System.out.printf("并行度: %d%n", Runtime.getRuntime().availableProcessors());
+    }
+}
\ No newline at end of file
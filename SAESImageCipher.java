@@ -0,0 +1,193 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+// 图像栅格加密：直接在BufferedImage的DataBuffer字节数组上原地加解密，不经过16进制字符串
+// 每行的像素字节按顺序两两组成16位块：
+//   ECB：整条带一次批量加密（图像中的块重复模式会保留下来，便于演示）
+//   CBC：每行一条独立的链，行IV由IV与行号派生（同SAESContainer的段IV）
+//   CTR：行r的第j块计数器为 IV + r·每行块数 + j；计数器只有16位，只接受不超过SAESUtils.CTR_MAX_BLOCKS块的图像
+// 行字节数为奇数时末尾余下1字节：CTR用下一个密钥流块的高字节异或，ECB用E_K(行号)的高字节，CBC用E_K(本行末个密文块)的高字节
+// 按若干行为一条带并行处理，每完成一条带回调一次，供界面逐步刷新预览
+// 只处理字节栅格（3BYTE_BGR、4BYTE_ABGR、BYTE_GRAY），其它类型先用toByteImage转换；结果需保存为PNG等无损格式
+public class SAESImageCipher {
+    // 每条带的目标块数
+    static final int BAND_BLOCKS = 1 << 16;
+
+    // 条带完成回调，可能在任意工作线程中调用
+    public interface BandListener {
+        void bandDone(int y0, int y1);
+    }
+
+    // 转换为可直接按字节访问的图像；已是字节栅格时原样返回
+    public static BufferedImage toByteImage(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+                || type == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(),
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = converted.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    public static void encrypt(BufferedImage image, SAESMode mode, int key, int iv, BandListener listener) {
+        process(image, mode, key, iv, false, listener);
+    }
+
+    public static void decrypt(BufferedImage image, SAESMode mode, int key, int iv, BandListener listener) {
+        process(image, mode, key, iv, true, listener);
+    }
+
+    private static void process(BufferedImage image, SAESMode mode, int key, int iv, boolean decrypt,
+                                BandListener listener) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel)
+                || raster.getParent() != null) {
+            throw new IllegalArgumentException("只支持字节栅格图像，请先调用toByteImage转换");
+        }
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int stride = model.getScanlineStride();
+        int rowBytes = image.getWidth() * model.getPixelStride();
+        int height = image.getHeight();
+        int rowBlocks = (rowBytes + 1) / 2;
+        // 在原地修改任何条带之前检查，避免图像只处理了一部分
+        if (mode == SAESMode.CTR) {
+            SAESUtils.checkCtrRange(0, (long) rowBlocks * height);
+        }
+        int bandRows = Math.max(1, BAND_BLOCKS / Math.max(1, rowBlocks));
+        int bands = (height + bandRows - 1) / bandRows;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int y0 = band * bandRows;
+            int y1 = Math.min(height, y0 + bandRows);
+            processBand(data, stride, rowBytes, rowBlocks, y0, y1, mode, key, iv, decrypt);
+            if (listener != null) {
+                listener.bandDone(y0, y1);
+            }
+        });
+    }
+
+    // 处理[y0, y1)行
+    private static void processBand(byte[] data, int stride, int rowBytes, int rowBlocks, int y0, int y1,
+                                    SAESMode mode, int key, int iv, boolean decrypt) {
+        int rows = y1 - y0;
+        int[] blocks = new int[rows * rowBlocks];
+        boolean odd = (rowBytes & 1) != 0;
+        // 读入块，奇数行长的末字节作为最后一块的高字节（CTR直接参与异或，其余模式单独处理）
+        for (int r = 0; r < rows; r++) {
+            int p = (y0 + r) * stride;
+            int b = r * rowBlocks;
+            for (int j = 0; j < rowBytes - 1; j += 2) {
+                blocks[b++] = ((data[p + j] & 0xFF) << 8) | (data[p + j + 1] & 0xFF);
+            }
+            if (odd) {
+                blocks[b] = (data[p + rowBytes - 1] & 0xFF) << 8;
+            }
+        }
+        int fullBlocks = odd ? rowBlocks - 1 : rowBlocks;
+        SAESEngine engine = SAESEngines.single();
+        switch (mode) {
+            case CTR:
+                if (decrypt) {
+                    SAESUtils.decryptBlocks(mode, key, iv, (long) y0 * rowBlocks, blocks, 0, blocks.length);
+                } else {
+                    SAESUtils.encryptBlocks(mode, key, iv, (long) y0 * rowBlocks, blocks, 0, blocks.length);
+                }
+                break;
+            case ECB:
+                if (!odd) {
+                    if (decrypt) {
+                        SAESUtils.decryptBlocks(mode, key, iv, 0, blocks, 0, blocks.length);
+                    } else {
+                        SAESUtils.encryptBlocks(mode, key, iv, 0, blocks, 0, blocks.length);
+                    }
+                    break;
+                }
+                for (int r = 0; r < rows; r++) {
+                    int b = r * rowBlocks;
+                    if (decrypt) {
+                        SAESUtils.decryptBlocks(mode, key, iv, 0, blocks, b, fullBlocks);
+                    } else {
+                        SAESUtils.encryptBlocks(mode, key, iv, 0, blocks, b, fullBlocks);
+                    }
+                    blocks[b + fullBlocks] ^= engine.encryptBlock((y0 + r) & 0xFFFF, key) & 0xFF00;
+                }
+                break;
+            case CBC:
+                for (int r = 0; r < rows; r++) {
+                    int b = r * rowBlocks;
+                    int rowIv = SAESContainer.segmentIv(key, iv, y0 + r);
+                    if (decrypt) {
+                        int last = fullBlocks > 0 ? blocks[b + fullBlocks - 1] : rowIv;
+                        SAESUtils.decryptBlocks(mode, key, rowIv, 0, blocks, b, fullBlocks);
+                        if (odd) {
+                            blocks[b + fullBlocks] ^= engine.encryptBlock(last, key) & 0xFF00;
+                        }
+                    } else {
+                        SAESUtils.encryptBlocks(mode, key, rowIv, 0, blocks, b, fullBlocks);
+                        if (odd) {
+                            int last = fullBlocks > 0 ? blocks[b + fullBlocks - 1] : rowIv;
+                            blocks[b + fullBlocks] ^= engine.encryptBlock(last, key) & 0xFF00;
+                        }
+                    }
+                }
+                break;
+        }
+        for (int r = 0; r < rows; r++) {
+            int p = (y0 + r) * stride;
+            int b = r * rowBlocks;
+            for (int j = 0; j < rowBytes - 1; j += 2) {
+                int block = blocks[b++];
+                data[p + j] = (byte) (block >>> 8);
+                data[p + j + 1] = (byte) block;
+            }
+            if (odd) {
+                data[p + rowBytes - 1] = (byte) (blocks[b] >>> 8);
+            }
+        }
+    }
+
+    // 命令行：
+    //   java SAESImageCipher                                      打开图形界面
+    //   java SAESImageCipher encrypt|decrypt <模式> <密钥> <IV> <输入图片> <输出PNG>
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            SwingUtilities.invokeLater(() -> new ImageEncryptionDialog(null).setVisible(true));
+            return;
+        }
+        if (args.length != 6 || !(args[0].equals("encrypt") || args[0].equals("decrypt"))) {
+            System.out.println("用法: java SAESImageCipher encrypt|decrypt <模式> <密钥> <IV> <输入图片> <输出PNG>");
+            return;
+        }
+        BufferedImage source = ImageIO.read(new File(args[4]));
+        if (source == null) {
+            throw new IOException("无法识别的图片格式: " + args[4]);
+        }
+        BufferedImage image = toByteImage(source);
+        SAESMode mode = SAESMode.parse(args[1]);
+        int key = Integer.parseInt(args[2], 16);
+        int iv = Integer.parseInt(args[3], 16);
+        long t0 = System.nanoTime();
+        if (args[0].equals("encrypt")) {
+            encrypt(image, mode, key, iv, null);
+        } else {
+            decrypt(image, mode, key, iv, null);
+        }
+        long elapsed = System.nanoTime() - t0;
+        ImageIO.write(image, "png", new File(args[5]));
+        System.out.printf("%dx%d，%s %s，用时 %.1f ms%n", image.getWidth(), image.getHeight(), args[0], mode,
+                elapsed / 1e6);
+    }
+}
\ No newline at end of file
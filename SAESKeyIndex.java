@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// 密钥候选倒排索引：对固定明文P，记录 密文C -> {k | E_k(P) = C}
+// 每个参考明文对应一个CSR结构的分区：
+//   offsets[65537]（int）：offsets[c]..offsets[c+1] 为密文c对应的密钥区间
+//   keys[65536]（u16）：按密文分组、组内按密钥升序排列的全部密钥
+// 文件布局（大端序）：魔数、版本、明文个数、各明文值，随后按8字节对齐依次存放各分区
+// 文件通过FileChannel.map只读映射，查询只需两次数组访问
+public class SAESKeyIndex {
+    public static final int MAGIC = 0x5341454B; // "SAEK"
+    public static final int VERSION = 1;
+
+    static final int KEY_SPACE = 0x10000;
+    static final int OFFSETS_BYTES = (KEY_SPACE + 1) * 4;
+    static final int SECTION_BYTES = OFFSETS_BYTES + KEY_SPACE * 2;
+    // 并行构建时每个任务处理的密钥数
+    static final int SEARCH_CHUNK = 4096;
+    // 单个映射区域不超过2 GiB
+    public static final int MAX_PLAINTEXTS = (Integer.MAX_VALUE - headerSize(0x10000)) / SECTION_BYTES;
+
+    private final int[] plaintexts;
+    private final ByteBuffer data;
+    private final int dataOffset;
+
+    private SAESKeyIndex(int[] plaintexts, ByteBuffer data, int dataOffset) {
+        this.plaintexts = plaintexts;
+        this.data = data;
+        this.dataOffset = dataOffset;
+    }
+
+    static int headerSize(int count) {
+        return (12 + count * 4 + 7) & ~7;
+    }
+
+    // 为给定参考明文并行构建内存中的索引
+    public static SAESKeyIndex build(int... plaintexts) {
+        int[] sorted = distinct(plaintexts);
+        int header = headerSize(sorted.length);
+        ByteBuffer buf = ByteBuffer.allocate(header + sorted.length * SECTION_BYTES);
+        writeHeader(buf, sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            buildSection(sorted[i], buf, header + i * SECTION_BYTES);
+        }
+        return new SAESKeyIndex(sorted, buf, header);
+    }
+
+    private static int[] distinct(int[] plaintexts) {
+        if (plaintexts.length == 0) {
+            throw new IllegalArgumentException("至少需要一个参考明文");
+        }
+        int[] values = new int[plaintexts.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = plaintexts[i] & 0xFFFF;
+        }
+        int[] sorted = IntStream.of(values).sorted().distinct().toArray();
+        if (sorted.length > MAX_PLAINTEXTS) {
+            throw new IllegalArgumentException("参考明文最多" + MAX_PLAINTEXTS + "个");
+        }
+        return sorted;
+    }
+
+    private static void writeHeader(ByteBuffer buf, int[] plaintexts) {
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, plaintexts.length);
+        for (int i = 0; i < plaintexts.length; i++) {
+            buf.putInt(12 + i * 4, plaintexts[i]);
+        }
+    }
+
+    // 计算全部密钥下的密文后做计数排序，写入CSR分区
+    private static void buildSection(int plaintext, ByteBuffer buf, int base) {
+        SAESSearchEvent event = SAESSearchEvent.start();
+        long start = SAESMetrics.start();
+        SAESEngine engine = SAESEngines.search();
+        int[] ciphertexts = new int[KEY_SPACE];
+        IntStream.range(0, KEY_SPACE / SEARCH_CHUNK).parallel()
+                .forEach(i -> engine.encryptUnderKeys(plaintext, i * SEARCH_CHUNK, ciphertexts, i * SEARCH_CHUNK, SEARCH_CHUNK));
+
+        int[] offsets = new int[KEY_SPACE + 1];
+        for (int c : ciphertexts) {
+            offsets[c + 1]++;
+        }
+        for (int c = 0; c < KEY_SPACE; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] next = Arrays.copyOf(offsets, KEY_SPACE);
+        char[] keys = new char[KEY_SPACE];
+        for (int k = 0; k < KEY_SPACE; k++) {
+            keys[next[ciphertexts[k]]++] = (char) k;
+        }
+
+        for (int c = 0; c <= KEY_SPACE; c++) {
+            buf.putInt(base + c * 4, offsets[c]);
+        }
+        int keyBase = base + OFFSETS_BYTES;
+        for (int i = 0; i < KEY_SPACE; i++) {
+            buf.putChar(keyBase + i * 2, keys[i]);
+        }
+        SAESMetrics.record("key-index.build", engine.name(), KEY_SPACE, start);
+        event.finish("key-index", KEY_SPACE, KEY_SPACE);
+    }
+
+    // 写入文件
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = data.duplicate();
+            buf.clear();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    // 只读映射索引文件
+    public static SAESKeyIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.capacity() < 12 || buf.getInt(0) != MAGIC) {
+                throw new IOException("不是S-AES密钥索引文件");
+            }
+            if (buf.getInt(4) != VERSION) {
+                throw new IOException("不支持的索引版本: " + buf.getInt(4));
+            }
+            int count = buf.getInt(8);
+            int header = headerSize(count);
+            if (count <= 0 || count > MAX_PLAINTEXTS || (long) header + (long) count * SECTION_BYTES != buf.capacity()) {
+                throw new IOException("索引文件长度与文件头不符");
+            }
+            int[] plaintexts = new int[count];
+            for (int i = 0; i < count; i++) {
+                plaintexts[i] = buf.getInt(12 + i * 4);
+            }
+            return new SAESKeyIndex(plaintexts, buf, header);
+        }
+    }
+
+    public int[] plaintexts() {
+        return plaintexts.clone();
+    }
+
+    public boolean contains(int plaintext) {
+        return Arrays.binarySearch(plaintexts, plaintext & 0xFFFF) >= 0;
+    }
+
+    private int section(int plaintext) {
+        int i = Arrays.binarySearch(plaintexts, plaintext & 0xFFFF);
+        if (i < 0) {
+            throw new IllegalArgumentException("索引中没有明文 " + String.format("%04X", plaintext & 0xFFFF));
+        }
+        return dataOffset + i * SECTION_BYTES;
+    }
+
+    // 满足 E_k(plaintext) = ciphertext 的密钥个数
+    public int count(int plaintext, int ciphertext) {
+        int base = section(plaintext);
+        int c = ciphertext & 0xFFFF;
+        return data.getInt(base + (c + 1) * 4) - data.getInt(base + c * 4);
+    }
+
+    // 满足 E_k(plaintext) = ciphertext 的全部密钥（升序）
+    public int[] keys(int plaintext, int ciphertext) {
+        int base = section(plaintext);
+        int c = ciphertext & 0xFFFF;
+        int from = data.getInt(base + c * 4);
+        int to = data.getInt(base + (c + 1) * 4);
+        int[] result = new int[to - from];
+        int keyBase = base + OFFSETS_BYTES;
+        for (int i = from; i < to; i++) {
+            result[i - from] = data.getChar(keyBase + i * 2);
+        }
+        return result;
+    }
+
+    // 与所有已知明密文对都一致的密钥：逐对求有序列表交集
+    public int[] candidates(int[] plaintexts, int[] ciphertexts) {
+        if (plaintexts.length != ciphertexts.length || plaintexts.length == 0) {
+            throw new IllegalArgumentException("明文与密文个数必须相同且不为空");
+        }
+        int[] result = keys(plaintexts[0], ciphertexts[0]);
+        for (int i = 1; i < plaintexts.length && result.length > 0; i++) {
+            result = intersect(result, keys(plaintexts[i], ciphertexts[i]));
+        }
+        return result;
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // 命令行工具
+    //   build <索引文件> <明文1> [明文2 ...]
+    //   query <索引文件> <明文> <密文>
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("build")) {
+            int[] plaintexts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                plaintexts[i - 2] = Integer.parseInt(args[i], 16);
+            }
+            long start = System.nanoTime();
+            SAESKeyIndex index = build(plaintexts);
+            index.write(Paths.get(args[1]));
+            System.out.printf("已为%d个明文构建索引，耗时%.1f ms%n", index.plaintexts.length,
+                    (System.nanoTime() - start) / 1e6);
+        } else if (args.length == 4 && args[0].equals("query")) {
+            SAESKeyIndex index = open(Paths.get(args[1]));
+            int[] keys = index.keys(Integer.parseInt(args[2], 16), Integer.parseInt(args[3], 16));
+            System.out.println("候选密钥数: " + keys.length);
+            for (int key : keys) {
+                System.out.println(String.format("%04X", key));
+            }
+        } else {
+            System.err.println("用法: java SAESKeyIndex build <索引文件> <明文1> [明文2 ...]");
+            System.err.println("      java SAESKeyIndex query <索引文件> <明文> <密文>");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+// 全部65536个密钥的轮密钥表：每个密钥一个int（w2<<24 | w3<<16 | w4<<8 | w5），共256 KiB
+// 首次使用时构建，之后不可变，可被任意线程共享；穷举类循环直接按密钥下标取轮密钥，省去每次密钥扩展
+// -Dsaes.keySchedule.offHeap=true 时存放在堆外直接内存中
+public class SAESKeySchedule {
+    public static final String CACHE_NAME = "key-schedule";
+    public static final int KEY_SPACE = 0x10000;
+
+    private final int[] heap;
+    private final IntBuffer direct;
+
+    private SAESKeySchedule(int[] heap, IntBuffer direct) {
+        this.heap = heap;
+        this.direct = direct;
+    }
+
+    // 延迟初始化的全局表
+    private static final class Holder {
+        static final SAESKeySchedule TABLE = build(Boolean.getBoolean("saes.keySchedule.offHeap"));
+    }
+
+    public static SAESKeySchedule table() {
+        return Holder.TABLE;
+    }
+
+    // 查表得到密钥的打包轮密钥
+    public static int roundKeys(int key) {
+        return Holder.TABLE.get(key);
+    }
+
+    public int get(int key) {
+        return heap != null ? heap[key & 0xFFFF] : direct.get(key & 0xFFFF);
+    }
+
+    public boolean isOffHeap() {
+        return heap == null;
+    }
+
+    // 构建一份新表（不影响全局表），供基准测试比较堆内/堆外
+    public static SAESKeySchedule build(boolean offHeap) {
+        SAESCacheEvent event = SAESCacheEvent.start();
+        SAESMetrics.cacheMiss(CACHE_NAME);
+        int[] table = new int[KEY_SPACE];
+        for (int key = 0; key < KEY_SPACE; key++) {
+            table[key] = SAESCore.expandKey(key);
+        }
+        SAESKeySchedule schedule;
+        if (offHeap) {
+            IntBuffer direct = ByteBuffer.allocateDirect(KEY_SPACE * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            direct.put(table);
+            direct.clear();
+            schedule = new SAESKeySchedule(null, direct);
+        } else {
+            schedule = new SAESKeySchedule(table, null);
+        }
+        event.finish(CACHE_NAME, SAESCacheEvent.BUILD, KEY_SPACE, KEY_SPACE * 4L);
+        return schedule;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+// 比较逐次密钥扩展与查轮密钥表的吞吐量
+//   1. 密钥扩展：遍历全部密钥取轮密钥
+//   2. 穷举搜索：对已知明密文对遍历全部密钥加密比对
+// 用法: java SAESKeyScheduleBenchmark [轮数]
+public class SAESKeyScheduleBenchmark {
+    private static final int KEY_SPACE = SAESKeySchedule.KEY_SPACE;
+    // 每次测量遍历密钥空间的次数
+    private static final int PASSES = 20;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        SAESMetrics.getInstance().setEnabled(false);
+        SAESKeySchedule heap = SAESKeySchedule.build(false);
+        SAESKeySchedule offHeap = SAESKeySchedule.build(true);
+
+        int plaintext = 0x6F6B;
+        int secret = 0xA73B;
+        int ciphertext = SAESCore.encryptBlock(plaintext, secret, SAESCore.expandKey(secret));
+
+        for (int r = 0; r <= rounds; r++) {
+            long t0 = System.nanoTime();
+            long sink = expandAll();
+            long t1 = System.nanoTime();
+            sink += lookupAll(heap);
+            long t2 = System.nanoTime();
+            sink += lookupAll(offHeap);
+            long t3 = System.nanoTime();
+            int found = searchExpanding(plaintext, ciphertext);
+            long t4 = System.nanoTime();
+            found += searchTable(heap, plaintext, ciphertext);
+            long t5 = System.nanoTime();
+            found += searchTable(offHeap, plaintext, ciphertext);
+            long t6 = System.nanoTime();
+            if (r == 0) {
+                // 第0轮为预热
+                continue;
+            }
+            System.out.printf("第%d轮 密钥扩展: 逐次 %.1f, 堆内表 %.1f, 堆外表 %.1f Mkeys/s | "
+                            + "穷举: 逐次扩展 %.1f, 堆内表 %.1f, 堆外表 %.1f Mkeys/s (%d, %d)%n",
+                    r, rate(t1 - t0), rate(t2 - t1), rate(t3 - t2),
+                    rate(t4 - t3), rate(t5 - t4), rate(t6 - t5), found, sink & 1);
+        }
+    }
+
+    private static double rate(long nanos) {
+        return (double) KEY_SPACE * PASSES * 1e3 / nanos;
+    }
+
+    private static long expandAll() {
+        long sink = 0;
+        for (int i = 0; i < KEY_SPACE * PASSES; i++) {
+            int key = i & 0xFFFF;
+            sink += SAESCore.expandKey(key);
+        }
+        return sink;
+    }
+
+    private static long lookupAll(SAESKeySchedule table) {
+        long sink = 0;
+        for (int i = 0; i < KEY_SPACE * PASSES; i++) {
+            int key = i & 0xFFFF;
+            sink += table.get(key);
+        }
+        return sink;
+    }
+
+    private static int searchExpanding(int plaintext, int ciphertext) {
+        int found = 0;
+        for (int i = 0; i < KEY_SPACE * PASSES; i++) {
+            int key = i & 0xFFFF;
+            if (SAESCore.encryptBlock(plaintext, key, SAESCore.expandKey(key)) == ciphertext) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int searchTable(SAESKeySchedule table, int plaintext, int ciphertext) {
+        int found = 0;
+        for (int i = 0; i < KEY_SPACE * PASSES; i++) {
+            int key = i & 0xFFFF;
+            if (SAESCore.encryptBlock(plaintext, key, table.get(key)) == ciphertext) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,505 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+// 全密钥空间统计：对每个密钥生成完整密码本后计算
+//   明文雪崩：对每个x翻转明文的每一位，统计密文汉明距离
+//   密钥雪崩：对采样明文翻转密钥的每一位，统计密文汉明距离
+//   置换结构：不动点个数、轮换个数、最长轮换，全部轮换长度不超过2即为对合（弱密钥）
+//   指纹：密码本及其逆置换的64位指纹，相同指纹为等价密钥候选，E_k1 = D_k2 为半弱密钥对候选
+// 密钥按批并行处理，每批结果按密钥顺序流式写出报告并累加到汇总中，内存占用与密钥区间大小无关
+// 报告文件名以.csv结尾时写CSV，否则写定长二进制记录（大端序）
+public class SAESKeyStats {
+    public static final int MAGIC = 0x53414554; // "SAET"
+    public static final int VERSION = 1;
+
+    static final int KEY_SPACE = 0x10000;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 48;
+    // 每批密钥数，决定流式写出的粒度
+    static final int BATCH_KEYS = 1024;
+    public static final int DEFAULT_KEY_SAMPLES = 256;
+
+    // 记录标志位
+    public static final int FLAG_INVOLUTION = 1;
+
+    // 单个密钥的统计结果
+    public static final class KeyStats {
+        public int key;
+        public int fixedPoints;
+        public int cycles;
+        public int maxCycle;
+        // 明文单比特翻转引起的密文翻转位数之和（65536×16次）
+        public long plaintextFlipBits;
+        // 密钥单比特翻转引起的密文翻转位数之和（样本数×16次）
+        public int keyFlipBits;
+        public int flags;
+        public long fingerprint;
+        public long inverseFingerprint;
+        // 汉明距离分布，只参与汇总，不写入报告
+        final long[] plaintextDistances = new long[17];
+        final long[] keyDistances = new long[17];
+
+        void write(ByteBuffer buf) {
+            buf.putInt(key);
+            buf.putInt(fixedPoints);
+            buf.putInt(cycles);
+            buf.putInt(maxCycle);
+            buf.putLong(plaintextFlipBits);
+            buf.putInt(keyFlipBits);
+            buf.putInt(flags);
+            buf.putLong(fingerprint);
+            buf.putLong(inverseFingerprint);
+        }
+
+        static String csvHeader() {
+            return "key,fixedPoints,cycles,maxCycle,plaintextFlipBits,keyFlipBits,flags,fingerprint,inverseFingerprint";
+        }
+
+        String toCsv() {
+            return String.format("%04X,%d,%d,%d,%d,%d,%d,%016X,%016X", key, fixedPoints, cycles, maxCycle,
+                    plaintextFlipBits, keyFlipBits, flags, fingerprint, inverseFingerprint);
+        }
+    }
+
+    // 对密钥区间[keyFrom, keyTo)做统计，结果写入report（为null时只汇总）
+    public static Summary run(int keyFrom, int keyTo, int keySamples, Path report) throws IOException {
+        if (keyFrom < 0 || keyTo > KEY_SPACE || keyFrom >= keyTo) {
+            throw new IllegalArgumentException("密钥区间无效");
+        }
+        if (keySamples <= 0 || keySamples > KEY_SPACE) {
+            throw new IllegalArgumentException("密钥翻转样本数必须在1到65536之间");
+        }
+        Summary summary = new Summary(keyFrom, keyTo, keySamples);
+        ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+        KeyStats[] batch = new KeyStats[BATCH_KEYS];
+        try (ReportWriter writer = report == null ? null : ReportWriter.open(report, summary)) {
+            for (int base = keyFrom; base < keyTo; base += BATCH_KEYS) {
+                int from = base;
+                int count = Math.min(BATCH_KEYS, keyTo - base);
+                SAESSearchEvent event = SAESSearchEvent.start();
+                long start = SAESMetrics.start();
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    Worker worker = idle.poll();
+                    if (worker == null) {
+                        worker = new Worker(keySamples);
+                    }
+                    batch[i] = worker.process(from + i);
+                    idle.add(worker);
+                });
+                SAESMetrics.record("key-stats", SAESMetrics.ENGINE_CORE, count * KEY_SPACE, start);
+                int flagged = 0;
+                for (int i = 0; i < count; i++) {
+                    summary.accept(batch[i]);
+                    if (batch[i].flags != 0) {
+                        flagged++;
+                    }
+                }
+                if (writer != null) {
+                    writer.write(batch, count);
+                }
+                event.finish("key-stats", count, flagged);
+            }
+        }
+        summary.finish();
+        return summary;
+    }
+
+    // 64位指纹：逐个吸收置换的输出值
+    static long fingerprint(int[] permutation) {
+        long h = 0x6A09E667F3BCC908L;
+        for (int v : permutation) {
+            h = (h ^ v) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    // 单个工作线程复用的密码本、逆置换与访问标记
+    private static final class Worker {
+        final int[] codebook = new int[KEY_SPACE];
+        final int[] inverse = new int[KEY_SPACE];
+        final long[] visited = new long[KEY_SPACE / 64];
+        final int[] samples;
+
+        Worker(int keySamples) {
+            // 乘以奇数在模2^16下是双射，样本互不相同且均匀分布
+            samples = new int[keySamples];
+            int stride = keySamples == KEY_SPACE ? 1 : 0x9E37;
+            for (int s = 0; s < keySamples; s++) {
+                samples[s] = (s * stride) & 0xFFFF;
+            }
+        }
+
+        KeyStats process(int key) {
+            KeyStats stats = new KeyStats();
+            stats.key = key;
+            int roundKeys = SAESKeySchedule.roundKeys(key);
+            for (int x = 0; x < KEY_SPACE; x++) {
+                int c = SAESCore.encryptBlock(x, key, roundKeys);
+                codebook[x] = c;
+                inverse[c] = x;
+            }
+            stats.fingerprint = fingerprint(codebook);
+            stats.inverseFingerprint = fingerprint(inverse);
+
+            long flips = 0;
+            for (int x = 0; x < KEY_SPACE; x++) {
+                int c = codebook[x];
+                for (int bit = 0; bit < 16; bit++) {
+                    int d = Integer.bitCount(c ^ codebook[x ^ (1 << bit)]);
+                    stats.plaintextDistances[d]++;
+                    flips += d;
+                }
+            }
+            stats.plaintextFlipBits = flips;
+
+            int keyFlips = 0;
+            for (int bit = 0; bit < 16; bit++) {
+                int other = key ^ (1 << bit);
+                int otherRoundKeys = SAESKeySchedule.roundKeys(other);
+                for (int x : samples) {
+                    int d = Integer.bitCount(codebook[x] ^ SAESCore.encryptBlock(x, other, otherRoundKeys));
+                    stats.keyDistances[d]++;
+                    keyFlips += d;
+                }
+            }
+            stats.keyFlipBits = keyFlips;
+
+            cycleStructure(stats);
+            return stats;
+        }
+
+        private void cycleStructure(KeyStats stats) {
+            Arrays.fill(visited, 0L);
+            int cycles = 0;
+            int fixedPoints = 0;
+            int maxCycle = 0;
+            for (int x = 0; x < KEY_SPACE; x++) {
+                if ((visited[x >>> 6] & (1L << x)) != 0) {
+                    continue;
+                }
+                int length = 0;
+                int y = x;
+                do {
+                    visited[y >>> 6] |= 1L << y;
+                    y = codebook[y];
+                    length++;
+                } while (y != x);
+                cycles++;
+                if (length == 1) {
+                    fixedPoints++;
+                }
+                maxCycle = Math.max(maxCycle, length);
+            }
+            stats.cycles = cycles;
+            stats.fixedPoints = fixedPoints;
+            stats.maxCycle = maxCycle;
+            if (maxCycle <= 2) {
+                stats.flags |= FLAG_INVOLUTION;
+            }
+        }
+    }
+
+    // 按密钥顺序流式写出报告
+    private static final class ReportWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final BufferedWriter csv;
+        private final ByteBuffer buf;
+        private long position;
+
+        private ReportWriter(FileChannel channel, BufferedWriter csv) {
+            this.channel = channel;
+            this.csv = csv;
+            this.buf = channel == null ? null : ByteBuffer.allocate(BATCH_KEYS * RECORD_SIZE);
+        }
+
+        static ReportWriter open(Path file, Summary summary) throws IOException {
+            if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                BufferedWriter csv = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                csv.write(KeyStats.csvHeader());
+                csv.newLine();
+                return new ReportWriter(null, csv);
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            ReportWriter writer = new ReportWriter(channel, null);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(summary.keyFrom);
+            header.putInt(summary.keyTo);
+            header.putInt(summary.keySamples);
+            header.putInt(RECORD_SIZE);
+            header.flip();
+            writer.writeFully(header);
+            return writer;
+        }
+
+        void write(KeyStats[] batch, int count) throws IOException {
+            if (csv != null) {
+                for (int i = 0; i < count; i++) {
+                    csv.write(batch[i].toCsv());
+                    csv.newLine();
+                }
+                return;
+            }
+            buf.clear();
+            for (int i = 0; i < count; i++) {
+                batch[i].write(buf);
+            }
+            buf.flip();
+            writeFully(buf);
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (csv != null) {
+                csv.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    // 流式汇总：直方图、极值与指纹数组，大小固定
+    public static final class Summary {
+        // 不动点个数与轮换个数的直方图，最后一个桶统计大于等于该值的密钥
+        static final int FIXED_POINT_BUCKETS = 16;
+        static final int CYCLE_BUCKETS = 32;
+        // 报告中最多列出的弱密钥/等价密钥组/半弱密钥对个数
+        static final int MAX_LISTED = 32;
+
+        public final int keyFrom;
+        public final int keyTo;
+        public final int keySamples;
+        long keys;
+        final long[] plaintextDistances = new long[17];
+        final long[] keyDistances = new long[17];
+        final long[] fixedPointHistogram = new long[FIXED_POINT_BUCKETS];
+        final long[] cycleHistogram = new long[CYCLE_BUCKETS];
+        long cycleSum;
+        int minMaxCycle = Integer.MAX_VALUE;
+        int maxMaxCycle;
+        long maxCycleSum;
+        int involutions;
+        final int[] involutionKeys = new int[MAX_LISTED];
+        final long[] fingerprints;
+        final long[] inverseFingerprints;
+        // finish()之后有效
+        int equivalentGroups;
+        int equivalentKeys;
+        final StringBuilder equivalentList = new StringBuilder();
+        int semiWeakPairs;
+        final StringBuilder semiWeakList = new StringBuilder();
+
+        Summary(int keyFrom, int keyTo, int keySamples) {
+            this.keyFrom = keyFrom;
+            this.keyTo = keyTo;
+            this.keySamples = keySamples;
+            this.fingerprints = new long[keyTo - keyFrom];
+            this.inverseFingerprints = new long[keyTo - keyFrom];
+        }
+
+        void accept(KeyStats stats) {
+            keys++;
+            add(plaintextDistances, stats.plaintextDistances);
+            add(keyDistances, stats.keyDistances);
+            fixedPointHistogram[Math.min(stats.fixedPoints, FIXED_POINT_BUCKETS - 1)]++;
+            cycleHistogram[Math.min(stats.cycles, CYCLE_BUCKETS - 1)]++;
+            cycleSum += stats.cycles;
+            minMaxCycle = Math.min(minMaxCycle, stats.maxCycle);
+            maxMaxCycle = Math.max(maxMaxCycle, stats.maxCycle);
+            maxCycleSum += stats.maxCycle;
+            if ((stats.flags & FLAG_INVOLUTION) != 0) {
+                if (involutions < MAX_LISTED) {
+                    involutionKeys[involutions] = stats.key;
+                }
+                involutions++;
+            }
+            fingerprints[stats.key - keyFrom] = stats.fingerprint;
+            inverseFingerprints[stats.key - keyFrom] = stats.inverseFingerprint;
+        }
+
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+
+        // 按指纹排序找出等价密钥组与半弱密钥对，候选再用完整密码本逐一确认
+        void finish() {
+            int n = fingerprints.length;
+            long[] sorted = new long[n];
+            int[] order = IntStream.range(0, n).boxed()
+                    .sorted((a, b) -> Long.compare(fingerprints[a], fingerprints[b]))
+                    .mapToInt(Integer::intValue).toArray();
+            for (int i = 0; i < n; i++) {
+                sorted[i] = fingerprints[order[i]];
+            }
+            for (int i = 0; i < n; ) {
+                int j = i + 1;
+                while (j < n && sorted[j] == sorted[i]) {
+                    j++;
+                }
+                if (j - i > 1) {
+                    int first = order[i] + keyFrom;
+                    StringBuilder group = new StringBuilder();
+                    int members = 0;
+                    for (int m = i; m < j; m++) {
+                        int key = order[m] + keyFrom;
+                        if (m == i || sameCodebook(first, key)) {
+                            group.append(members == 0 ? "" : " ").append(String.format("%04X", key));
+                            members++;
+                        }
+                    }
+                    if (members > 1) {
+                        if (equivalentGroups < MAX_LISTED) {
+                            equivalentList.append("  ").append(group).append('\n');
+                        }
+                        equivalentGroups++;
+                        equivalentKeys += members;
+                    }
+                }
+                i = j;
+            }
+            for (int k = 0; k < n; k++) {
+                int p = Arrays.binarySearch(sorted, inverseFingerprints[k]);
+                if (p < 0) {
+                    continue;
+                }
+                while (p > 0 && sorted[p - 1] == inverseFingerprints[k]) {
+                    p--;
+                }
+                for (; p < n && sorted[p] == inverseFingerprints[k]; p++) {
+                    int k1 = order[p] + keyFrom;
+                    int k2 = k + keyFrom;
+                    // 对合密钥与自身配对已计入弱密钥，每对只记一次
+                    if (k1 < k2 && isInverse(k1, k2)) {
+                        if (semiWeakPairs < MAX_LISTED) {
+                            semiWeakList.append(String.format("  %04X %04X%n", k1, k2));
+                        }
+                        semiWeakPairs++;
+                    }
+                }
+            }
+        }
+
+        private static boolean sameCodebook(int k1, int k2) {
+            int r1 = SAESKeySchedule.roundKeys(k1);
+            int r2 = SAESKeySchedule.roundKeys(k2);
+            for (int x = 0; x < KEY_SPACE; x++) {
+                if (SAESCore.encryptBlock(x, k1, r1) != SAESCore.encryptBlock(x, k2, r2)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // E_k1 ∘ E_k2 为恒等置换
+        private static boolean isInverse(int k1, int k2) {
+            int r1 = SAESKeySchedule.roundKeys(k1);
+            int r2 = SAESKeySchedule.roundKeys(k2);
+            for (int x = 0; x < KEY_SPACE; x++) {
+                if (SAESCore.encryptBlock(SAESCore.encryptBlock(x, k2, r2), k1, r1) != x) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String report() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("密钥区间: %04X-%04X  密钥数: %d%n", keyFrom, keyTo - 1, keys));
+            sb.append(String.format("明文雪崩: 平均翻转%.4f位 (理想8)%n", mean(plaintextDistances)));
+            sb.append(distribution("  汉明距离分布", plaintextDistances));
+            sb.append(String.format("密钥雪崩: 平均翻转%.4f位 (每个密钥%d个样本)%n", mean(keyDistances), keySamples));
+            sb.append(distribution("  汉明距离分布", keyDistances));
+            sb.append(String.format("轮换个数: 平均%.3f (随机置换约%.3f)%n", (double) cycleSum / keys,
+                    harmonic(KEY_SPACE)));
+            sb.append(histogram("  直方图", cycleHistogram));
+            sb.append(histogram("不动点个数直方图", fixedPointHistogram));
+            sb.append(String.format("最长轮换: 最小%d 平均%.1f 最大%d%n", minMaxCycle, (double) maxCycleSum / keys,
+                    maxMaxCycle));
+            sb.append("对合（弱）密钥: ").append(involutions);
+            for (int i = 0; i < Math.min(involutions, MAX_LISTED); i++) {
+                sb.append(String.format(" %04X", involutionKeys[i]));
+            }
+            sb.append('\n');
+            sb.append("等价密钥组: ").append(equivalentGroups).append(" 组，共 ").append(equivalentKeys)
+                    .append(" 个密钥\n").append(equivalentList);
+            sb.append("半弱密钥对: ").append(semiWeakPairs).append('\n').append(semiWeakList);
+            return sb.toString();
+        }
+
+        private static double mean(long[] distances) {
+            long total = 0;
+            long weighted = 0;
+            for (int d = 0; d < distances.length; d++) {
+                total += distances[d];
+                weighted += d * distances[d];
+            }
+            return total == 0 ? 0.0 : (double) weighted / total;
+        }
+
+        private static double harmonic(int n) {
+            double h = 0;
+            for (int i = 1; i <= n; i++) {
+                h += 1.0 / i;
+            }
+            return h;
+        }
+
+        private static String distribution(String title, long[] distances) {
+            long total = Arrays.stream(distances).sum();
+            StringBuilder sb = new StringBuilder(title).append(':');
+            for (int d = 0; d < distances.length; d++) {
+                sb.append(String.format(" %d=%.4f", d, total == 0 ? 0.0 : (double) distances[d] / total));
+            }
+            return sb.append('\n').toString();
+        }
+
+        private static String histogram(String title, long[] counts) {
+            StringBuilder sb = new StringBuilder(title).append(':');
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sb.append(' ').append(i).append(i == counts.length - 1 ? "+" : "").append('=').append(counts[i]);
+                }
+            }
+            return sb.append('\n').toString();
+        }
+    }
+
+    // 命令行工具
+    //   run <报告文件> [起始密钥] [结束密钥] [密钥翻转样本数]
+    //   密钥为16进制，区间左闭右开，默认全部65536个密钥；报告文件为 - 时只输出汇总
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("run")) {
+            Path report = args[1].equals("-") ? null : Paths.get(args[1]);
+            int from = args.length > 2 ? Integer.parseInt(args[2], 16) : 0;
+            int to = args.length > 3 ? Integer.parseInt(args[3], 16) : KEY_SPACE;
+            int samples = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_KEY_SAMPLES;
+            long start = System.nanoTime();
+            Summary summary = run(from, to, samples, report);
+            System.out.print(summary.report());
+            System.out.printf("耗时 %.1f s%n", (System.nanoTime() - start) / 1e9);
+        } else {
+            System.err.println("用法: java SAESKeyStats run <报告文件|-> [起始密钥] [结束密钥] [密钥翻转样本数]");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,324 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 密钥环：密钥ID -> 预先计算好的轮密钥（可选完整密码本）
+// 读路径无锁：当前映射是不可变快照，由AtomicReference整体替换发布（写时复制）；
+// 取用密钥时对密钥材料的引用计数做一次CAS，得到租约（Lease），用完关闭
+// 轮换：新材料发布后，新的acquire拿到新密钥；已持有旧租约的流继续用旧密钥直到关闭
+// 旧材料在被替换且引用计数归零后退役：清除密码本与密钥，并发出SAESCacheEvent的EVICT事件
+// 写操作（put/rotate/remove）之间通过CAS重试，互不阻塞读者
+public class SAESKeyring {
+    public static final String CACHE_NAME = "keyring";
+    static final int KEY_SPACE = 0x10000;
+
+    private final boolean codebooks;
+    private final AtomicReference<Map<String, Material>> current =
+            new AtomicReference<>(Collections.emptyMap());
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+
+    // 不预计算密码本，每块按查表引擎计算
+    public SAESKeyring() {
+        this(false);
+    }
+
+    // codebooks为true时每个密钥预先构建加密/解密密码本（各128 KiB）
+    public SAESKeyring(boolean codebooks) {
+        this.codebooks = codebooks;
+    }
+
+    // 一个密钥版本的材料；refs为租约数，-1表示已退役
+    private final class Material {
+        final String id;
+        final long version;
+        int key;
+        final int roundKeys;
+        char[] encrypt;
+        char[] decrypt;
+        final AtomicInteger refs = new AtomicInteger();
+        // 已从当前映射中移除（被轮换或删除）
+        final AtomicBoolean superseded = new AtomicBoolean();
+
+        Material(String id, int key) {
+            this.id = id;
+            this.version = versions.incrementAndGet();
+            this.key = key & 0xFFFF;
+            this.roundKeys = SAESKeySchedule.roundKeys(this.key);
+            if (codebooks) {
+                SAESCacheEvent event = SAESCacheEvent.start();
+                encrypt = new char[KEY_SPACE];
+                decrypt = new char[KEY_SPACE];
+                for (int x = 0; x < KEY_SPACE; x++) {
+                    int c = SAESTableEngine.encrypt(x, this.key, roundKeys);
+                    encrypt[x] = (char) c;
+                    decrypt[c] = (char) x;
+                }
+                event.finish(CACHE_NAME, SAESCacheEvent.BUILD, KEY_SPACE, KEY_SPACE * 4L);
+            }
+        }
+
+        // 租约数加一；材料已退役时返回false
+        boolean retain() {
+            while (true) {
+                int n = refs.get();
+                if (n < 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0 && superseded.get()) {
+                tryRetire();
+            }
+        }
+
+        void supersede() {
+            superseded.set(true);
+            tryRetire();
+        }
+
+        // 只有引用计数为0时才能从0变为-1，之后retain全部失败
+        private void tryRetire() {
+            if (refs.compareAndSet(0, -1)) {
+                if (encrypt != null) {
+                    Arrays.fill(encrypt, (char) 0);
+                    Arrays.fill(decrypt, (char) 0);
+                }
+                key = 0;
+                retired.incrementAndGet();
+                SAESCacheEvent.emit(CACHE_NAME, SAESCacheEvent.EVICT, encrypt != null ? KEY_SPACE : 1,
+                        encrypt != null ? KEY_SPACE * 4L : 4L);
+                encrypt = null;
+                decrypt = null;
+            }
+        }
+    }
+
+    // 密钥租约：持有期间密钥材料不会退役；不是线程安全的，每个流各自取一个
+    public final class Lease implements AutoCloseable {
+        private final Material material;
+        private boolean closed;
+
+        private Lease(Material material) {
+            this.material = material;
+        }
+
+        public String id() {
+            return material.id;
+        }
+
+        // 密钥版本号，每次put/rotate递增
+        public long version() {
+            return material.version;
+        }
+
+        public int key() {
+            check();
+            return material.key;
+        }
+
+        public int encryptBlock(int block) {
+            check();
+            char[] table = material.encrypt;
+            if (table != null) {
+                return table[block & 0xFFFF];
+            }
+            return SAESTableEngine.encrypt(block, material.key, material.roundKeys);
+        }
+
+        public int decryptBlock(int block) {
+            check();
+            char[] table = material.decrypt;
+            if (table != null) {
+                return table[block & 0xFFFF];
+            }
+            return SAESTableEngine.decrypt(block, material.key, material.roundKeys);
+        }
+
+        // 原地ECB加密
+        public void encrypt(int[] blocks, int offset, int length) {
+            check();
+            long start = SAESMetrics.start();
+            char[] table = material.encrypt;
+            int key = material.key;
+            int roundKeys = material.roundKeys;
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = table != null ? table[blocks[i] & 0xFFFF] : SAESTableEngine.encrypt(blocks[i], key, roundKeys);
+            }
+            SAESMetrics.record("keyring.encrypt", engineName(), length, start);
+        }
+
+        // 原地ECB解密
+        public void decrypt(int[] blocks, int offset, int length) {
+            check();
+            long start = SAESMetrics.start();
+            char[] table = material.decrypt;
+            int key = material.key;
+            int roundKeys = material.roundKeys;
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = table != null ? table[blocks[i] & 0xFFFF] : SAESTableEngine.decrypt(blocks[i], key, roundKeys);
+            }
+            SAESMetrics.record("keyring.decrypt", engineName(), length, start);
+        }
+
+        private String engineName() {
+            return material.encrypt != null ? SAESCodebookEngine.NAME : SAESTableEngine.NAME;
+        }
+
+        private void check() {
+            if (closed) {
+                throw new IllegalStateException("租约已关闭");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                material.release();
+            }
+        }
+    }
+
+    // 取得密钥的租约，密钥不存在时抛出IllegalArgumentException；无锁
+    public Lease acquire(String id) {
+        while (true) {
+            Material material = current.get().get(id);
+            if (material == null) {
+                throw new IllegalArgumentException("未知的密钥ID: " + id);
+            }
+            // 读到快照后材料恰好退役时重新读取快照
+            if (material.retain()) {
+                return new Lease(material);
+            }
+        }
+    }
+
+    // 添加或替换密钥，返回新版本号；被替换的旧版本在租约全部关闭后退役
+    public long put(String id, int key) {
+        Material material = new Material(id, key);
+        Map<String, Material> snapshot;
+        Map<String, Material> updated;
+        do {
+            snapshot = current.get();
+            updated = new HashMap<>(snapshot);
+            updated.put(id, material);
+        } while (!current.compareAndSet(snapshot, Collections.unmodifiableMap(updated)));
+        Material old = snapshot.get(id);
+        if (old != null) {
+            old.supersede();
+        }
+        return material.version;
+    }
+
+    // 轮换已有密钥，返回新版本号
+    public long rotate(String id, int newKey) {
+        if (!current.get().containsKey(id)) {
+            throw new IllegalArgumentException("未知的密钥ID: " + id);
+        }
+        return put(id, newKey);
+    }
+
+    // 删除密钥，已有租约仍可用到关闭为止
+    public boolean remove(String id) {
+        Map<String, Material> snapshot;
+        Map<String, Material> updated;
+        do {
+            snapshot = current.get();
+            if (!snapshot.containsKey(id)) {
+                return false;
+            }
+            updated = new HashMap<>(snapshot);
+            updated.remove(id);
+        } while (!current.compareAndSet(snapshot, Collections.unmodifiableMap(updated)));
+        snapshot.get(id).supersede();
+        return true;
+    }
+
+    public Set<String> ids() {
+        return current.get().keySet();
+    }
+
+    // 当前版本号，密钥不存在时返回-1
+    public long version(String id) {
+        Material material = current.get().get(id);
+        return material == null ? -1 : material.version;
+    }
+
+    // 已退役的密钥版本数
+    public long retiredCount() {
+        return retired.get();
+    }
+
+    // 命令行演示：多个线程持续以租约加密数据段，另一线程不断轮换密钥；
+    // 每段用租约中的密钥解密校验，统计轮换与退役次数
+    //   java SAESKeyring [秒数] [流线程数] [codebook]
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        boolean codebooks = args.length > 2 && args[2].equals("codebook");
+        SAESKeyring keyring = new SAESKeyring(codebooks);
+        String[] ids = {"orders", "users", "logs"};
+        Random seed = new Random(1);
+        for (String id : ids) {
+            keyring.put(id, seed.nextInt(KEY_SPACE));
+        }
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong segments = new AtomicLong();
+        AtomicLong mismatches = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            workers[t] = new Thread(() -> {
+                int[] data = new int[4096];
+                while (System.nanoTime() < deadline) {
+                    // 一个流：取一次租约，处理若干段后关闭
+                    try (Lease lease = keyring.acquire(ids[random.nextInt(ids.length)])) {
+                        for (int s = 0; s < 8; s++) {
+                            for (int i = 0; i < data.length; i++) {
+                                data[i] = random.nextInt(KEY_SPACE);
+                            }
+                            int[] expected = data.clone();
+                            lease.encrypt(data, 0, data.length);
+                            int key = lease.key();
+                            for (int i = 0; i < data.length; i += 512) {
+                                if (SAESCore.decrypt(data[i], key) != expected[i]) {
+                                    mismatches.incrementAndGet();
+                                }
+                            }
+                            lease.decrypt(data, 0, data.length);
+                            if (!Arrays.equals(data, expected)) {
+                                mismatches.incrementAndGet();
+                            }
+                            segments.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        long rotations = 0;
+        while (System.nanoTime() < deadline) {
+            keyring.rotate(ids[seed.nextInt(ids.length)], seed.nextInt(KEY_SPACE));
+            rotations++;
+            Thread.sleep(1);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("密码本 %s，处理 %d 段，轮换 %d 次，已退役 %d 个版本，校验失败 %d%n",
+                codebooks ? "预计算" : "无", segments.get(), rotations, keyring.retiredCount(), mismatches.get());
+    }
+}
\ No newline at end of file
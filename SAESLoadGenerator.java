@@ -0,0 +1,140 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 本机负载生成器：启动内嵌SAESServer（或连接已在运行的服务），
+// 多个连接各自保持固定数量的未完成请求，统计延迟分位数与吞吐量
+// 每隔VERIFY_INTERVAL个请求用SAESUtils在本地重算一次，核对服务端结果
+// 命令行：java SAESLoadGenerator [连接数] [秒数] [每请求块数] [流水线深度] [端口，0为内嵌服务]
+public class SAESLoadGenerator {
+    static final int VERIFY_INTERVAL = 1024;
+    static final int KEYS = 64;
+
+    // 单个连接的发送循环与延迟记录
+    private static final class Worker extends Thread {
+        final int port;
+        final long deadline;
+        final int blocksPerRequest;
+        final int depth;
+        final Semaphore window;
+        final Random random;
+        long[] latencies = new long[1 << 16];
+        int count;
+        final AtomicLong mismatches;
+        Exception error;
+
+        Worker(int index, int port, long deadline, int blocksPerRequest, int depth, AtomicLong mismatches) {
+            super("saes-load-" + index);
+            this.port = port;
+            this.deadline = deadline;
+            this.blocksPerRequest = blocksPerRequest;
+            this.depth = depth;
+            this.window = new Semaphore(depth);
+            this.random = new Random(index);
+            this.mismatches = mismatches;
+        }
+
+        @Override
+        public void run() {
+            SAESMode[] modes = SAESMode.values();
+            try (SAESClient client = new SAESClient(port)) {
+                long sent = 0;
+                while (System.nanoTime() < deadline) {
+                    window.acquire();
+                    int[] blocks = random.ints(blocksPerRequest, 0, 0x10000).toArray();
+                    int key = random.nextInt(KEYS) * 0x9E37 & 0xFFFF;
+                    SAESMode mode = modes[(int) (sent % modes.length)];
+                    int iv = random.nextInt(0x10000);
+                    boolean verify = sent % VERIFY_INTERVAL == 0;
+                    long start = System.nanoTime();
+                    CompletableFuture<int[]> future = client.submit(true, mode, iv, blocks, key);
+                    future.whenComplete((result, failure) -> {
+                        long latency = System.nanoTime() - start;
+                        synchronized (this) {
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = latency;
+                        }
+                        if (failure == null && verify) {
+                            int[] expected = blocks.clone();
+                            SAESUtils.encryptBlocks(mode, key, iv, 0, expected, 0, expected.length);
+                            if (!Arrays.equals(expected, result)) {
+                                mismatches.incrementAndGet();
+                            }
+                        } else if (failure != null) {
+                            mismatches.incrementAndGet();
+                        }
+                        window.release();
+                    });
+                    sent++;
+                }
+                // 等待在途请求全部返回
+                window.acquire(depth);
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int blocksPerRequest = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int port = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        SAESServer server = null;
+        if (port == 0) {
+            server = new SAESServer(0).start();
+            port = server.port();
+        }
+        SAESEngines.bulk();
+        SAESEngines.single();
+        System.out.printf("连接 %d，流水线深度 %d，每请求 %d 块，持续 %d 秒，端口 %d%n",
+                connections, depth, blocksPerRequest, seconds, port);
+
+        AtomicLong mismatches = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        Worker[] workers = new Worker[connections];
+        for (int i = 0; i < connections; i++) {
+            workers[i] = new Worker(i, port, deadline, blocksPerRequest, depth, mismatches);
+            workers[i].start();
+        }
+        long total = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.error != null) {
+                System.err.println(worker.getName() + " 失败: " + worker.error);
+            }
+            total += worker.count;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long[] all = new long[(int) total];
+        int position = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, all, position, worker.count);
+            position += worker.count;
+        }
+        Arrays.sort(all);
+        System.out.printf("请求 %d，%.0f 请求/秒，%.2f MB/s%n", total, total / elapsed,
+                total * blocksPerRequest * 2 / elapsed / 1e6);
+        if (total > 0) {
+            System.out.printf("延迟 p50 %.1f us，p99 %.1f us，p999 %.1f us，最大 %.1f us%n",
+                    percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3,
+                    percentile(all, 0.999) / 1e3, all[all.length - 1] / 1e3);
+        }
+        System.out.println("校验失败 " + mismatches.get());
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
\ No newline at end of file
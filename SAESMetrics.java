@@ -0,0 +1,264 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// S-AES运行指标：按操作/引擎统计块数、吞吐量、密钥扩展次数、缓存命中率和延迟直方图
+// 所有计数器均为LongAdder，多线程并发更新时不会形成竞争热点
+// 可通过系统属性 -Dsaes.metrics=false 关闭，关闭后每次调用只剩一次volatile读
+// 类加载时注册到平台MBeanServer（名称为OBJECT_NAME），-Dsaes.metrics.jmx=false 时不注册
+public class SAESMetrics implements SAESMetricsMBean {
+    public static final String OBJECT_NAME = "saes:type=Metrics";
+
+    // 引擎名称
+    public static final String ENGINE_CORE = "core";
+
+    private static final SAESMetrics INSTANCE = new SAESMetrics();
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("saes.metrics"));
+
+    private static final LongAdder keyExpansions = new LongAdder();
+    private static final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CacheStats> caches = new ConcurrentHashMap<>();
+
+    static {
+        if (enabled && !"false".equalsIgnoreCase(System.getProperty("saes.metrics.jmx"))) {
+            try {
+                registerMBean();
+            } catch (IllegalStateException e) {
+                // 注册失败不影响指标采集
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    private SAESMetrics() {
+    }
+
+    public static SAESMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // 注册到平台MBeanServer，重复调用无副作用
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("注册MBean失败: " + e.getMessage(), e);
+        }
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    // ---- 采集接口 ----
+
+    // 批量操作开始时调用，关闭时返回0
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    // 批量操作结束时调用，operation如"cbc.encrypt"，engine如ENGINE_CORE
+    public static void record(String operation, String engine, int blocks, long startNanos) {
+        if (!enabled || startNanos == 0L) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        operationStats(operation, engine).record(blocks, elapsed);
+    }
+
+    public static void keyExpansion() {
+        if (enabled) {
+            keyExpansions.increment();
+        }
+    }
+
+    public static void cacheHit(String cache) {
+        if (enabled) {
+            cacheStats(cache).hits.increment();
+        }
+    }
+
+    public static void cacheMiss(String cache) {
+        if (enabled) {
+            cacheStats(cache).misses.increment();
+        }
+    }
+
+    static OperationStats operationStats(String operation, String engine) {
+        String name = operation + "/" + engine;
+        OperationStats stats = operations.get(name);
+        if (stats == null) {
+            stats = operations.computeIfAbsent(name, k -> new OperationStats());
+        }
+        return stats;
+    }
+
+    static CacheStats cacheStats(String cache) {
+        CacheStats stats = caches.get(cache);
+        if (stats == null) {
+            stats = caches.computeIfAbsent(cache, k -> new CacheStats());
+        }
+        return stats;
+    }
+
+    // ---- MBean ----
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    @Override
+    public long getKeyExpansions() {
+        return keyExpansions.sum();
+    }
+
+    @Override
+    public long getBulkBlocks() {
+        long total = 0;
+        for (OperationStats stats : operations.values()) {
+            total += stats.blocks.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public double getBulkBytesPerSecond() {
+        long blocks = 0;
+        long nanos = 0;
+        for (OperationStats stats : operations.values()) {
+            blocks += stats.blocks.sum();
+            nanos += stats.nanos.sum();
+        }
+        return nanos == 0 ? 0.0 : blocks * 2 * 1e9 / nanos;
+    }
+
+    @Override
+    public long getCacheHits() {
+        long total = 0;
+        for (CacheStats stats : caches.values()) {
+            total += stats.hits.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        long total = 0;
+        for (CacheStats stats : caches.values()) {
+            total += stats.misses.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    @Override
+    public void reset() {
+        keyExpansions.reset();
+        operations.clear();
+        caches.clear();
+    }
+
+    // 文本快照，按名称排序便于比对
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("S-AES指标 (enabled=").append(enabled).append(")\n");
+        sb.append("密钥扩展: ").append(keyExpansions.sum()).append('\n');
+        sb.append("批量操作:\n");
+        for (Map.Entry<String, OperationStats> e : new TreeMap<>(operations).entrySet()) {
+            OperationStats s = e.getValue();
+            long calls = s.calls.sum();
+            long blocks = s.blocks.sum();
+            long nanos = s.nanos.sum();
+            sb.append(String.format("  %-24s calls=%d blocks=%d bytes/s=%.0f p50<=%dns p99<=%dns max<=%dns%n",
+                    e.getKey(), calls, blocks, nanos == 0 ? 0.0 : blocks * 2 * 1e9 / nanos,
+                    s.latency.percentile(0.50), s.latency.percentile(0.99), s.latency.percentile(1.0)));
+        }
+        sb.append("缓存:\n");
+        for (Map.Entry<String, CacheStats> e : new TreeMap<>(caches).entrySet()) {
+            long hits = e.getValue().hits.sum();
+            long misses = e.getValue().misses.sum();
+            long total = hits + misses;
+            sb.append(String.format("  %-24s hits=%d misses=%d hitRate=%.4f%n",
+                    e.getKey(), hits, misses, total == 0 ? 0.0 : (double) hits / total));
+        }
+        return sb.toString();
+    }
+
+    // 单个操作/引擎组合的统计
+    static final class OperationStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder blocks = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(int blockCount, long elapsedNanos) {
+            calls.increment();
+            blocks.add(blockCount);
+            nanos.add(elapsedNanos);
+            latency.record(elapsedNanos);
+        }
+    }
+
+    static final class CacheStats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+
+    // 以2的幂为桶边界的延迟直方图，第i个桶统计 [2^(i-1), 2^i) 纳秒
+    static final class LatencyHistogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int index = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 1L));
+            buckets[Math.min(index, buckets.length - 1)].increment();
+        }
+
+        // 返回给定分位数所在桶的上界（纳秒）
+        long percentile(double q) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return i >= 63 ? Long.MAX_VALUE : 1L << i;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// 测量指标采集本身的开销：交替开启/关闭SAESMetrics运行同一批量负载并比较每块耗时
+// 用法: java SAESMetricsBenchmark [块数] [轮数] [每次调用的块数]
+public class SAESMetricsBenchmark {
+    public static void main(String[] args) {
+        int totalBlocks = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int blocksPerCall = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Random random = new Random(42);
+        List<Integer> blocks = new ArrayList<>(blocksPerCall);
+        for (int i = 0; i < blocksPerCall; i++) {
+            blocks.add(random.nextInt(0x10000));
+        }
+        int calls = Math.max(1, totalBlocks / blocksPerCall);
+        SAESMetrics metrics = SAESMetrics.getInstance();
+
+        // 预热
+        metrics.setEnabled(true);
+        run(blocks, calls);
+        metrics.setEnabled(false);
+        run(blocks, calls);
+
+        double onTotal = 0;
+        double offTotal = 0;
+        for (int r = 0; r < rounds; r++) {
+            metrics.setEnabled(true);
+            double on = run(blocks, calls);
+            metrics.setEnabled(false);
+            double off = run(blocks, calls);
+            onTotal += on;
+            offTotal += off;
+            System.out.printf("第%d轮: 开启 %.2f ns/块, 关闭 %.2f ns/块%n", r + 1, on, off);
+        }
+        double on = onTotal / rounds;
+        double off = offTotal / rounds;
+        System.out.printf("平均: 开启 %.2f ns/块, 关闭 %.2f ns/块, 开销 %.2f%%%n", on, off, (on - off) * 100 / off);
+
+        metrics.setEnabled(true);
+        System.out.print(SAESMetrics.snapshot());
+    }
+
+    // 返回每块平均耗时（纳秒）
+    private static double run(List<Integer> blocks, int calls) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            List<Integer> out = SAESUtils.encryptCBC(blocks, i & 0xFFFF, 0x1234);
+            sink += out.get(out.size() - 1);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ((long) calls * blocks.size());
+    }
+}
\ No newline at end of file
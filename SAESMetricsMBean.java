@@ -0,0 +1,26 @@
+// S-AES运行指标的JMX管理接口
+public interface SAESMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // 累计密钥扩展次数
+    long getKeyExpansions();
+
+    // 批量操作累计处理的块数
+    long getBulkBlocks();
+
+    // 批量操作在计时期间的平均吞吐量（字节/秒）
+    double getBulkBytesPerSecond();
+
+    // 所有缓存累计命中次数
+    long getCacheHits();
+
+    // 所有缓存累计未命中次数
+    long getCacheMisses();
+
+    // 文本形式的完整快照
+    String getSnapshot();
+
+    void reset();
+}
\ No newline at end of file
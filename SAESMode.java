@@ -0,0 +1,18 @@
+// 分组密码工作模式
+public enum SAESMode {
+    // 电子密码本：各块独立加密
+    ECB,
+    // 密码分组链接：每块先与前一密文块（首块与IV）异或再加密
+    CBC,
+    // 计数器：第i块与E(IV + i)异或，计数器按16位回绕
+    CTR;
+
+    // 按名称解析（不区分大小写）
+    public static SAESMode parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的工作模式: " + name);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+import java.util.stream.LongStream;
+
+// 基于S-AES的可并行MAC（PMAC1结构，16位标签）
+// 第i块（从1开始）的偏移量 Δ_i = gray(i)·L，其中L = E_K(0)，gray为格雷码；
+// 由于乘法对加法线性，Δ_i等于gray(i)中各置位j对应的L·x^j之异或，可直接算出，
+// 因此各块贡献 E_K(M_i ⊕ Δ_i) 可以在任意分片上独立计算后异或合并
+// 末块完整时 Σ ⊕= M_m ⊕ L·x^-1，否则 Σ ⊕= pad(M_m)；标签 = E_K(Σ)
+public class SAESPmac {
+    // 单个并行分片的块数
+    public static final int CHUNK_BLOCKS = 8192;
+    // update()中超过该块数时并行计算
+    static final int PARALLEL_THRESHOLD = CHUNK_BLOCKS * 2;
+
+    private final int key;
+    private final int roundKeys;
+    // powers[j] = L·x^j
+    private final int[] powers = new int[64];
+    private final int lInverse;
+
+    private int sigma;
+    // 已处理的块数，下一块序号为blockIndex + 1
+    private long blockIndex;
+    private int offset;
+    private final byte[] pending = new byte[2];
+    private int pendingLength;
+    private long start = SAESMetrics.start();
+
+    public SAESPmac(int key) {
+        this.key = key & 0xFFFF;
+        this.roundKeys = SAESCore.expandKey(this.key);
+        int l = SAESCore.encryptBlock(0, this.key, this.roundKeys);
+        powers[0] = l;
+        for (int j = 1; j < powers.length; j++) {
+            powers[j] = SAESGF16.dbl(powers[j - 1]);
+        }
+        lInverse = SAESGF16.half(l);
+    }
+
+    // 直接计算第i块（从1开始）的偏移量
+    int offsetOf(long i) {
+        long gray = i ^ (i >>> 1);
+        int delta = 0;
+        while (gray != 0) {
+            delta ^= powers[Long.numberOfTrailingZeros(gray)];
+            gray &= gray - 1;
+        }
+        return delta;
+    }
+
+    // 计算从第firstIndex块（从1开始）起count个完整块的贡献之异或，可在任意线程调用
+    public int contribution(long firstIndex, byte[] data, int dataOffset, int count) {
+        int delta = offsetOf(firstIndex);
+        int sum = 0;
+        long index = firstIndex;
+        for (int i = 0; i < count; i++) {
+            int block = ((data[dataOffset] & 0xFF) << 8) | (data[dataOffset + 1] & 0xFF);
+            sum ^= SAESCore.encryptBlock(block ^ delta, key, roundKeys);
+            dataOffset += 2;
+            // Δ_{i+1} = Δ_i ⊕ L·x^ntz(i+1)
+            index++;
+            delta ^= powers[Long.numberOfTrailingZeros(index)];
+        }
+        return sum;
+    }
+
+    // 按CHUNK_BLOCKS分片并行计算贡献
+    public int parallelContribution(long firstIndex, byte[] data, int dataOffset, int count) {
+        int chunks = (count + CHUNK_BLOCKS - 1) / CHUNK_BLOCKS;
+        return (int) LongStream.range(0, chunks).parallel().map(c -> {
+            int from = (int) c * CHUNK_BLOCKS;
+            int n = Math.min(CHUNK_BLOCKS, count - from);
+            return contribution(firstIndex + from, data, dataOffset + from * 2, n);
+        }).reduce(0, (a, b) -> a ^ b);
+    }
+
+    public void update(byte[] data) {
+        update(data, 0, data.length);
+    }
+
+    public void update(byte[] data, int dataOffset, int length) {
+        while (length > 0) {
+            if (pendingLength == 2) {
+                absorb(((pending[0] & 0xFF) << 8) | (pending[1] & 0xFF));
+                pendingLength = 0;
+            }
+            if (pendingLength == 0 && length > 2) {
+                // 处理所有完整块，至少留下1个字节作为可能的末块
+                int n = (length - 1) >> 1;
+                sigma ^= n >= PARALLEL_THRESHOLD
+                        ? parallelContribution(blockIndex + 1, data, dataOffset, n)
+                        : contribution(blockIndex + 1, data, dataOffset, n);
+                blockIndex += n;
+                offset = offsetOf(blockIndex);
+                dataOffset += n * 2;
+                length -= n * 2;
+            }
+            pending[pendingLength++] = data[dataOffset++];
+            length--;
+        }
+    }
+
+    private void absorb(int block) {
+        blockIndex++;
+        offset ^= powers[Long.numberOfTrailingZeros(blockIndex)];
+        sigma ^= SAESCore.encryptBlock(block ^ offset, key, roundKeys);
+    }
+
+    // 计算标签并重置状态
+    public int doFinal() {
+        int s = sigma;
+        if (pendingLength == 2) {
+            s ^= (((pending[0] & 0xFF) << 8) | (pending[1] & 0xFF)) ^ lInverse;
+        } else if (pendingLength == 1) {
+            s ^= ((pending[0] & 0xFF) << 8) | 0x80;
+        } else {
+            s ^= 0x8000;
+        }
+        int tag = SAESCore.encryptBlock(s, key, roundKeys);
+        SAESMetrics.record("pmac", SAESMetrics.ENGINE_CORE, (int) Math.min(Integer.MAX_VALUE, blockIndex + 1), start);
+        reset();
+        return tag;
+    }
+
+    public boolean verify(int expectedTag) {
+        return SAESCmac.tagEquals(doFinal(), expectedTag);
+    }
+
+    public void reset() {
+        sigma = 0;
+        blockIndex = 0;
+        offset = 0;
+        pendingLength = 0;
+        start = SAESMetrics.start();
+    }
+
+    // 一次性计算，大输入自动并行
+    public static int mac(int key, byte[] data, int offset, int length) {
+        SAESPmac pmac = new SAESPmac(key);
+        pmac.update(data, offset, length);
+        return pmac.doFinal();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,421 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// 选择明文密钥恢复的彩虹表（时间-存储折中）
+// 目标函数 f(k) = E_k(P0) || E_k(P1) ...，输出位数不少于密钥位数：
+//   16位密钥（单重加密）使用1个选择明文，32位密钥（SAESCore.doubleEncrypt，k = k1<<16 | k2）使用2个
+// 链：k_0 = 起点，k_{s+1} = R_s(f(k_s))，R_s为与位置和表号相关的约化函数；只保存（终点，起点）
+// 每张表去除终点重复的链（完美彩虹表），按终点排序后写入文件并只读映射
+public class SAESRainbowTable {
+    public static final int MAGIC = 0x53414552; // "SAER"
+    public static final int VERSION = 1;
+
+    private final int keyBits;
+    private final int[] plaintexts;
+    private final int chainLength;
+    private final int[] tableCounts;
+    private final int[] tableOffsets;
+    private final ByteBuffer data;
+
+    // 在线查找统计
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final LongAdder falseAlarms = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+
+    private SAESRainbowTable(int keyBits, int[] plaintexts, int chainLength, int[] tableCounts, ByteBuffer data,
+                             int dataOffset) {
+        this.keyBits = keyBits;
+        this.plaintexts = plaintexts;
+        this.chainLength = chainLength;
+        this.tableCounts = tableCounts;
+        this.tableOffsets = new int[tableCounts.length];
+        int offset = dataOffset;
+        for (int t = 0; t < tableCounts.length; t++) {
+            tableOffsets[t] = offset;
+            offset += tableCounts[t] * 8;
+        }
+        this.data = data;
+    }
+
+    // ---- 目标函数与约化函数 ----
+
+    static long keyMask(int keyBits) {
+        return keyBits == 32 ? 0xFFFFFFFFL : (1L << keyBits) - 1;
+    }
+
+    // 计算 f(k)，结果为各选择明文密文的拼接
+    static long f(int keyBits, int[] plaintexts, long key) {
+        SAESEngine engine = SAESEngines.search();
+        long out = 0;
+        for (int p : plaintexts) {
+            int c;
+            if (keyBits == 16) {
+                c = engine.encryptBlock(p, (int) key);
+            } else {
+                // 与SAESCore.doubleEncrypt相同
+                c = engine.encryptBlock(engine.encryptBlock(p, (int) (key >>> 16)), (int) (key & 0xFFFF));
+            }
+            out = (out << 16) | c;
+        }
+        return out;
+    }
+
+    // 约化函数：与位置、表号相关的异或，截取为密钥位数
+    static long reduce(int keyBits, int table, int position, long y) {
+        long salt = (table * 0x9E3779B97F4A7C15L) ^ (position * 0xC2B2AE3D27D4EB4FL);
+        salt ^= salt >>> 29;
+        return (y ^ salt) & keyMask(keyBits);
+    }
+
+    // 由起点计算链终点
+    static long chainEnd(int keyBits, int[] plaintexts, int table, int chainLength, long start) {
+        long k = start;
+        for (int s = 0; s < chainLength; s++) {
+            k = reduce(keyBits, table, s, f(keyBits, plaintexts, k));
+        }
+        return k;
+    }
+
+    // ---- 生成 ----
+
+    // 并行生成tables张表，每张chains条链
+    public static SAESRainbowTable generate(int keyBits, int[] plaintexts, int chainLength, int chains, int tables) {
+        if (keyBits != 16 && keyBits != 32) {
+            throw new IllegalArgumentException("密钥位数只能是16（单重）或32（双重）");
+        }
+        if (plaintexts.length * 16 < keyBits) {
+            throw new IllegalArgumentException(keyBits + "位密钥至少需要" + keyBits / 16 + "个选择明文");
+        }
+        if (chainLength <= 0 || chains <= 0 || tables <= 0) {
+            throw new IllegalArgumentException("链长、链数和表数必须为正数");
+        }
+        // 文件头把明文数与表数各存为16位；f()把各明文的密文拼成64位，最多4个明文
+        if (plaintexts.length > 4) {
+            throw new IllegalArgumentException("选择明文最多4个");
+        }
+        if (tables > 0xFFFF) {
+            throw new IllegalArgumentException("表数最多65535");
+        }
+        int[] counts = new int[tables];
+        long[][] sorted = new long[tables][];
+        for (int t = 0; t < tables; t++) {
+            SAESSearchEvent event = SAESSearchEvent.start();
+            final int table = t;
+            Random random = new Random(0x5EED0000L + t);
+            long[] starts = new long[chains];
+            for (int i = 0; i < chains; i++) {
+                starts[i] = random.nextLong() & keyMask(keyBits);
+            }
+            // 每个元素为 终点<<32 | 起点；查找时终点按无符号比较，因此按无符号排序（翻转符号位后有符号排序）
+            long[] pairs = new long[chains];
+            IntStream.range(0, chains).parallel().forEach(i ->
+                    pairs[i] = ((chainEnd(keyBits, plaintexts, table, chainLength, starts[i]) << 32) | starts[i])
+                            ^ Long.MIN_VALUE);
+            Arrays.sort(pairs);
+            for (int i = 0; i < chains; i++) {
+                pairs[i] ^= Long.MIN_VALUE;
+            }
+            int n = 0;
+            for (int i = 0; i < chains; i++) {
+                if (n == 0 || (pairs[n - 1] >>> 32) != (pairs[i] >>> 32)) {
+                    pairs[n++] = pairs[i];
+                }
+            }
+            sorted[t] = Arrays.copyOf(pairs, n);
+            counts[t] = n;
+            event.finish("rainbow.generate", (long) chains * chainLength, n);
+        }
+
+        int header = headerSize(plaintexts.length, tables);
+        long total = header;
+        for (int count : counts) {
+            total += count * 8L;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("彩虹表超过2 GiB");
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) total);
+        writeHeader(buf, keyBits, plaintexts, chainLength, counts);
+        buf.position(header);
+        for (long[] pairs : sorted) {
+            for (long pair : pairs) {
+                buf.putInt((int) (pair >>> 32));
+                buf.putInt((int) pair);
+            }
+        }
+        return new SAESRainbowTable(keyBits, plaintexts.clone(), chainLength, counts, buf, header);
+    }
+
+    static int headerSize(int plaintextCount, int tables) {
+        return (20 + plaintextCount * 4 + tables * 4 + 7) & ~7;
+    }
+
+    private static void writeHeader(ByteBuffer buf, int keyBits, int[] plaintexts, int chainLength, int[] counts) {
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, keyBits);
+        buf.putInt(12, chainLength);
+        buf.putInt(16, (plaintexts.length << 16) | counts.length);
+        int p = 20;
+        for (int plaintext : plaintexts) {
+            buf.putInt(p, plaintext & 0xFFFF);
+            p += 4;
+        }
+        for (int count : counts) {
+            buf.putInt(p, count);
+            p += 4;
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = data.duplicate();
+            buf.clear();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    public static SAESRainbowTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.capacity() < 20 || buf.getInt(0) != MAGIC) {
+                throw new IOException("不是S-AES彩虹表文件");
+            }
+            if (buf.getInt(4) != VERSION) {
+                throw new IOException("不支持的彩虹表版本: " + buf.getInt(4));
+            }
+            int keyBits = buf.getInt(8);
+            int chainLength = buf.getInt(12);
+            int plaintextCount = buf.getInt(16) >>> 16;
+            int tables = buf.getInt(16) & 0xFFFF;
+            int header = headerSize(plaintextCount, tables);
+            // 与generate()相同的限制
+            if ((keyBits != 16 && keyBits != 32) || plaintextCount * 16 < keyBits || plaintextCount > 4
+                    || chainLength <= 0 || tables <= 0 || header > buf.capacity()) {
+                throw new IOException("彩虹表文件头已损坏");
+            }
+            int[] plaintexts = new int[plaintextCount];
+            int p = 20;
+            for (int i = 0; i < plaintextCount; i++, p += 4) {
+                plaintexts[i] = buf.getInt(p);
+            }
+            int[] counts = new int[tables];
+            long total = header;
+            for (int t = 0; t < tables; t++, p += 4) {
+                counts[t] = buf.getInt(p);
+                if (counts[t] < 0) {
+                    throw new IOException("彩虹表文件头已损坏");
+                }
+                total += counts[t] * 8L;
+            }
+            if (total != buf.capacity()) {
+                throw new IOException("彩虹表文件长度与文件头不符");
+            }
+            return new SAESRainbowTable(keyBits, plaintexts, chainLength, counts, buf, header);
+        }
+    }
+
+    // ---- 在线查找 ----
+
+    // 在第table张表中二分查找终点，返回起点，未找到返回-1
+    private long findStart(int table, long end) {
+        int base = tableOffsets[table];
+        int lo = 0;
+        int hi = tableCounts[table] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long value = data.getInt(base + mid * 8) & 0xFFFFFFFFL;
+            if (value < end) {
+                lo = mid + 1;
+            } else if (value > end) {
+                hi = mid - 1;
+            } else {
+                return data.getInt(base + mid * 8 + 4) & 0xFFFFFFFFL;
+            }
+        }
+        return -1;
+    }
+
+    // 由已知选择明文的密文（按plaintexts顺序拼接）恢复密钥，各表并行查找，失败返回-1
+    public long lookup(long target) {
+        lookups.increment();
+        long result = IntStream.range(0, tableCounts.length).parallel()
+                .mapToLong(t -> lookupInTable(t, target))
+                .filter(k -> k >= 0)
+                .findAny()
+                .orElse(-1L);
+        if (result >= 0) {
+            found.increment();
+        }
+        return result;
+    }
+
+    private long lookupInTable(int table, long target) {
+        long evaluated = 0;
+        long alarms = 0;
+        try {
+            for (int j = chainLength - 1; j >= 0; j--) {
+                long x = reduce(keyBits, table, j, target);
+                for (int s = j + 1; s < chainLength; s++) {
+                    x = reduce(keyBits, table, s, f(keyBits, plaintexts, x));
+                    evaluated++;
+                }
+                long start = findStart(table, x);
+                if (start < 0) {
+                    continue;
+                }
+                // 从起点重走到第j个位置验证
+                long k = start;
+                for (int s = 0; s < j; s++) {
+                    k = reduce(keyBits, table, s, f(keyBits, plaintexts, k));
+                    evaluated++;
+                }
+                evaluated++;
+                if (f(keyBits, plaintexts, k) == target) {
+                    return k;
+                }
+                alarms++;
+            }
+            return -1;
+        } finally {
+            evaluations.add(evaluated);
+            falseAlarms.add(alarms);
+        }
+    }
+
+    // 精确统计表覆盖的密钥比例（仅16位密钥），即所有链上出现过的不同密钥数 / 2^16
+    public double exactCoverage() {
+        if (keyBits != 16) {
+            throw new IllegalStateException("只能精确统计16位密钥空间的覆盖率");
+        }
+        AtomicLongArray bitmap = new AtomicLongArray(1 << 10);
+        for (int t = 0; t < tableCounts.length; t++) {
+            final int table = t;
+            IntStream.range(0, tableCounts[t]).parallel().forEach(i -> {
+                long k = data.getInt(tableOffsets[table] + i * 8 + 4) & 0xFFFFFFFFL;
+                for (int s = 0; s < chainLength; s++) {
+                    int key = (int) k;
+                    bitmap.getAndUpdate(key >>> 6, w -> w | (1L << (key & 63)));
+                    k = reduce(keyBits, table, s, f(keyBits, plaintexts, k));
+                }
+            });
+        }
+        long covered = 0;
+        for (int i = 0; i < bitmap.length(); i++) {
+            covered += Long.bitCount(bitmap.get(i));
+        }
+        return covered / 65536.0;
+    }
+
+    public int keyBits() {
+        return keyBits;
+    }
+
+    public int[] plaintexts() {
+        return plaintexts.clone();
+    }
+
+    // 文本形式的统计报告
+    public String report() {
+        long chains = 0;
+        for (int count : tableCounts) {
+            chains += count;
+        }
+        long n = lookups.sum();
+        return String.format("密钥位数=%d 表数=%d 链长=%d 链总数=%d 查找=%d 成功=%d (%.2f%%) "
+                        + "平均加密次数=%.0f (穷举期望%.0f) 平均误报=%.2f",
+                keyBits, tableCounts.length, chainLength, chains, n, found.sum(),
+                n == 0 ? 0.0 : found.sum() * 100.0 / n,
+                n == 0 ? 0.0 : (double) evaluations.sum() / n,
+                (double) (keyMask(keyBits) + 1) / 2,
+                n == 0 ? 0.0 : (double) falseAlarms.sum() / n);
+    }
+
+    // 命令行工具
+    //   generate <文件> <密钥位数16|32> <链长> <每表链数> <表数> <明文1> [明文2]
+    //   test <文件> <随机测试次数>
+    //   check                  生成小型32位表，检查链上的密钥都能恢复（终点高位为1时也能查到）
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 7 && args[0].equals("generate")) {
+            int[] plaintexts = new int[args.length - 6];
+            for (int i = 6; i < args.length; i++) {
+                plaintexts[i - 6] = Integer.parseInt(args[i], 16);
+            }
+            long start = System.nanoTime();
+            SAESRainbowTable table = generate(Integer.parseInt(args[2]), plaintexts, Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]), Integer.parseInt(args[5]));
+            table.write(Paths.get(args[1]));
+            System.out.printf("生成完成，耗时%.1f s%n", (System.nanoTime() - start) / 1e9);
+            if (table.keyBits == 16) {
+                System.out.printf("覆盖率: %.2f%%%n", table.exactCoverage() * 100);
+            }
+        } else if (args.length == 3 && args[0].equals("test")) {
+            SAESRainbowTable table = open(Paths.get(args[1]));
+            Random random = new Random();
+            int trials = Integer.parseInt(args[2]);
+            int correct = 0;
+            for (int i = 0; i < trials; i++) {
+                long key = random.nextLong() & keyMask(table.keyBits);
+                long target = f(table.keyBits, table.plaintexts, key);
+                long recovered = table.lookup(target);
+                // 恢复出的密钥可能是与真实密钥等价的另一个密钥
+                if (recovered >= 0 && f(table.keyBits, table.plaintexts, recovered) == target) {
+                    correct++;
+                }
+            }
+            System.out.println(table.report());
+            System.out.printf("估计覆盖率: %.2f%%%n", correct * 100.0 / trials);
+        } else if (args.length == 1 && args[0].equals("check")) {
+            check();
+        } else {
+            System.err.println("用法: java SAESRainbowTable generate <文件> <16|32> <链长> <每表链数> <表数> <明文1> [明文2]");
+            System.err.println("      java SAESRainbowTable test <文件> <随机测试次数>");
+            System.err.println("      java SAESRainbowTable check");
+        }
+    }
+
+    // 32位表的恢复检查：从表中随机取链，取链上某一位置的密钥，查找必须成功
+    private static void check() {
+        SAESRainbowTable table = generate(32, new int[]{0x6B61, 0x2D55}, 64, 4000, 1);
+        Random random = new Random(7);
+        int high = 0;
+        for (int i = 0; i < table.tableCounts[0]; i++) {
+            if (table.data.getInt(table.tableOffsets[0] + i * 8) < 0) {
+                high++;
+            }
+        }
+        int trials = 200;
+        int recovered = 0;
+        for (int i = 0; i < trials; i++) {
+            int entry = random.nextInt(table.tableCounts[0]);
+            long k = table.data.getInt(table.tableOffsets[0] + entry * 8 + 4) & 0xFFFFFFFFL;
+            int position = random.nextInt(table.chainLength);
+            for (int s = 0; s < position; s++) {
+                k = reduce(32, 0, s, f(32, table.plaintexts, k));
+            }
+            long target = f(32, table.plaintexts, k);
+            long found = table.lookup(target);
+            if (found >= 0 && f(32, table.plaintexts, found) == target) {
+                recovered++;
+            }
+        }
+        System.out.printf("32位表：%d 条链（终点≥0x80000000的 %d 条），链上密钥恢复 %d/%d%n",
+                table.tableCounts[0], high, recovered, trials);
+        if (recovered != trials) {
+            throw new IllegalStateException("链上的密钥未能全部恢复");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,327 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// 密文换密钥：不经过明文列表，每个密文块只读写一次
+// 16位分组使整个密码本只有65536项，因此：
+//   ECB：c' = E_new(D_old(c))，预先合成一张置换表，每块一次查表
+//   CTR：c' = c ⊕ E_old(IV_old + i) ⊕ E_new(IV_new + i)，计数器按16位回绕，异或表以块号低16位为下标
+//   CBC：c'_i = E_new(D_old(c_i) ⊕ c_{i-1} ⊕ c'_{i-1})，用旧密钥解密表与新密钥加密表融合为一趟；
+//        链接值使单个文件只能顺序处理，容器文件各段独立链接，可按段并行
+// 支持原始密文文件（每块2字节大端序，与SAESFlow的raw格式相同）和SAESContainer容器文件
+// 源文件与目标文件相同时原地改写；原地改写中途失败会留下新旧密钥混合的文件
+public class SAESRekey {
+    static final int KEY_SPACE = 0x10000;
+    // 并行处理时每个任务的块数（128 KiB）
+    static final int CHUNK_BLOCKS = 1 << 16;
+
+    // 密钥的完整加密密码本
+    static char[] encryptTable(int key) {
+        char[] table = new char[KEY_SPACE];
+        int roundKeys = SAESKeySchedule.roundKeys(key);
+        for (int x = 0; x < KEY_SPACE; x++) {
+            table[x] = (char) SAESTableEngine.encrypt(x, key, roundKeys);
+        }
+        return table;
+    }
+
+    // 密钥的完整解密密码本
+    static char[] decryptTable(int key) {
+        char[] table = new char[KEY_SPACE];
+        int roundKeys = SAESKeySchedule.roundKeys(key);
+        for (int x = 0; x < KEY_SPACE; x++) {
+            table[SAESTableEngine.encrypt(x, key, roundKeys)] = (char) x;
+        }
+        return table;
+    }
+
+    // ECB换密钥置换表：table[c] = E_new(D_old(c))
+    public static char[] ecbTable(int oldKey, int newKey) {
+        char[] oldEncrypt = encryptTable(oldKey);
+        char[] newEncrypt = encryptTable(newKey);
+        char[] table = new char[KEY_SPACE];
+        for (int p = 0; p < KEY_SPACE; p++) {
+            table[oldEncrypt[p]] = newEncrypt[p];
+        }
+        return table;
+    }
+
+    // CTR换密钥异或表：table[j] = E_old(oldIv + j) ⊕ E_new(newIv + j)，第i块使用table[i & 0xFFFF]
+    public static char[] ctrTable(int oldKey, int oldIv, int newKey, int newIv) {
+        int oldRoundKeys = SAESKeySchedule.roundKeys(oldKey);
+        int newRoundKeys = SAESKeySchedule.roundKeys(newKey);
+        char[] table = new char[KEY_SPACE];
+        for (int j = 0; j < KEY_SPACE; j++) {
+            table[j] = (char) (SAESTableEngine.encrypt((oldIv + j) & 0xFFFF, oldKey, oldRoundKeys)
+                    ^ SAESTableEngine.encrypt((newIv + j) & 0xFFFF, newKey, newRoundKeys));
+        }
+        return table;
+    }
+
+    // 换密钥所需的全部表，按模式只构建用到的部分
+    static final class Tables {
+        final SAESMode mode;
+        final char[] ecb;
+        final char[] ctr;
+        final char[] oldDecrypt;
+        final char[] newEncrypt;
+
+        Tables(SAESMode mode, int oldKey, int oldIv, int newKey, int newIv) {
+            SAESCacheEvent event = SAESCacheEvent.start();
+            this.mode = mode;
+            this.ecb = mode == SAESMode.ECB ? ecbTable(oldKey, newKey) : null;
+            this.ctr = mode == SAESMode.CTR ? ctrTable(oldKey, oldIv, newKey, newIv) : null;
+            this.oldDecrypt = mode == SAESMode.CBC ? decryptTable(oldKey) : null;
+            this.newEncrypt = mode == SAESMode.CBC ? encryptTable(newKey) : null;
+            event.finish("rekey", SAESCacheEvent.BUILD, KEY_SPACE, mode == SAESMode.CBC ? KEY_SPACE * 4L : KEY_SPACE * 2L);
+        }
+    }
+
+    // CBC链接状态：旧密文与新密文各自的前一块
+    static final class Chain {
+        int oldPrevious;
+        int newPrevious;
+
+        Chain(int oldPrevious, int newPrevious) {
+            this.oldPrevious = oldPrevious;
+            this.newPrevious = newPrevious;
+        }
+    }
+
+    // 原地改写buf中[0, limit)范围的密文块；firstBlock为首块的块号（CTR使用），chain仅CBC使用
+    static void apply(Tables tables, ByteBuffer buf, long firstBlock, Chain chain) {
+        int count = buf.limit() >> 1;
+        switch (tables.mode) {
+            case ECB: {
+                char[] table = tables.ecb;
+                for (int i = 0; i < count; i++) {
+                    buf.putChar(2 * i, table[buf.getChar(2 * i)]);
+                }
+                break;
+            }
+            case CTR: {
+                char[] table = tables.ctr;
+                int index = (int) (firstBlock & 0xFFFF);
+                for (int i = 0; i < count; i++) {
+                    buf.putChar(2 * i, (char) (buf.getChar(2 * i) ^ table[index]));
+                    index = (index + 1) & 0xFFFF;
+                }
+                break;
+            }
+            case CBC: {
+                char[] oldDecrypt = tables.oldDecrypt;
+                char[] newEncrypt = tables.newEncrypt;
+                int oldPrevious = chain.oldPrevious;
+                int newPrevious = chain.newPrevious;
+                for (int i = 0; i < count; i++) {
+                    int c = buf.getChar(2 * i);
+                    newPrevious = newEncrypt[oldDecrypt[c] ^ oldPrevious ^ newPrevious];
+                    oldPrevious = c;
+                    buf.putChar(2 * i, (char) newPrevious);
+                }
+                chain.oldPrevious = oldPrevious;
+                chain.newPrevious = newPrevious;
+                break;
+            }
+        }
+    }
+
+    // 打开源/目标通道；同一文件时返回同一个读写通道
+    private static FileChannel[] open(Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new FileChannel[]{channel, channel};
+        }
+        FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            return new FileChannel[]{in, out};
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static void close(FileChannel[] channels) throws IOException {
+        channels[0].close();
+        channels[1].close();
+    }
+
+    // 读取[position, position + blocks*2)，换密钥后写到目标的同一位置
+    private static void rekeyRange(FileChannel in, FileChannel out, Tables tables, long position, int blocks,
+                                   long firstBlock, Chain chain) throws IOException {
+        long start = SAESMetrics.start();
+        ByteBuffer buf = ByteBuffer.allocate(blocks * 2);
+        SAESContainer.readFully(in, buf, position);
+        buf.flip();
+        apply(tables, buf, firstBlock, chain);
+        SAESContainer.writeFully(out, buf, position);
+        SAESMetrics.record("rekey." + tables.mode.name().toLowerCase(), SAESTableEngine.NAME, blocks, start);
+    }
+
+    // 按块号区间并行处理（ECB/CTR），区间之间互不依赖
+    private static void rekeyParallel(FileChannel in, FileChannel out, Tables tables, long dataOffset,
+                                      long totalBlocks) throws IOException {
+        int chunks = (int) ((totalBlocks + CHUNK_BLOCKS - 1) / CHUNK_BLOCKS);
+        try {
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                long first = (long) c * CHUNK_BLOCKS;
+                int blocks = (int) Math.min(CHUNK_BLOCKS, totalBlocks - first);
+                try {
+                    rekeyRange(in, out, tables, dataOffset + first * 2, blocks, first, null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 原始密文文件换密钥，返回处理的块数；CBC为顺序的单趟融合处理，ECB/CTR按块区间并行
+    public static long rekeyFile(Path source, Path target, SAESMode mode, int oldKey, int oldIv,
+                                 int newKey, int newIv) throws IOException {
+        long size = Files.size(source);
+        if ((size & 1) != 0) {
+            throw new IOException("密文文件长度必须是2字节的整数倍");
+        }
+        long totalBlocks = size / 2;
+        Tables tables = new Tables(mode, oldKey & 0xFFFF, oldIv & 0xFFFF, newKey & 0xFFFF, newIv & 0xFFFF);
+        SAESCipherEvent event = SAESCipherEvent.start();
+        FileChannel[] channels = open(source, target);
+        try {
+            if (mode == SAESMode.CBC) {
+                Chain chain = new Chain(oldIv & 0xFFFF, newIv & 0xFFFF);
+                for (long first = 0; first < totalBlocks; first += CHUNK_BLOCKS) {
+                    int blocks = (int) Math.min(CHUNK_BLOCKS, totalBlocks - first);
+                    rekeyRange(channels[0], channels[1], tables, first * 2, blocks, first, chain);
+                }
+            } else {
+                rekeyParallel(channels[0], channels[1], tables, 0, totalBlocks);
+            }
+        } finally {
+            close(channels);
+        }
+        event.finish("rekey." + mode.name().toLowerCase(), SAESTableEngine.NAME, (int) Math.min(totalBlocks, Integer.MAX_VALUE));
+        return totalBlocks;
+    }
+
+    // 容器文件换密钥：IV与分段不变；CBC各段并行，并重写索引中的段IV；文件头的引擎字段更新为当前批量引擎
+    public static SAESContainer.Header rekeyContainer(Path source, Path target, int oldKey, int newKey)
+            throws IOException {
+        FileChannel[] channels = open(source, target);
+        try {
+            FileChannel in = channels[0];
+            FileChannel out = channels[1];
+            SAESContainer.Header header = SAESContainer.readHeader(in);
+            ByteBuffer index = ByteBuffer.allocate(header.segmentCount * SAESContainer.INDEX_ENTRY_SIZE);
+            SAESContainer.readFully(in, index, header.indexOffset);
+            int iv = header.iv;
+            Tables tables = new Tables(header.mode, oldKey & 0xFFFF, iv, newKey & 0xFFFF, iv);
+            SAESCipherEvent event = SAESCipherEvent.start();
+            if (header.mode == SAESMode.CBC) {
+                try {
+                    IntStream.range(0, header.segmentCount).parallel().forEach(s -> {
+                        int entry = s * SAESContainer.INDEX_ENTRY_SIZE;
+                        long offset = index.getLong(entry);
+                        int newSegmentIv = SAESContainer.segmentIv(newKey & 0xFFFF, iv, s);
+                        Chain chain = new Chain(index.getChar(entry + 8), newSegmentIv);
+                        index.putChar(entry + 8, (char) newSegmentIv);
+                        try {
+                            rekeyRange(in, out, tables, offset, header.blocksInSegment(s), 0, chain);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            } else {
+                // ECB/CTR的段连续存放，直接按全局块号处理
+                rekeyParallel(in, out, tables, SAESContainer.HEADER_SIZE, header.totalBlocks);
+            }
+            event.finish("rekey.container", SAESTableEngine.NAME, (int) Math.min(header.totalBlocks, Integer.MAX_VALUE));
+            index.clear();
+            SAESContainer.writeFully(out, index, header.indexOffset);
+            SAESContainer.Header updated = new SAESContainer.Header(header.mode, header.padding, iv,
+                    header.segmentBlocks, header.originalLength, header.totalBlocks, header.segmentCount,
+                    header.indexOffset, SAESEngines.bulk().name());
+            SAESContainer.writeHeader(out, updated);
+            return updated;
+        } finally {
+            close(channels);
+        }
+    }
+
+    // 命令行工具
+    //   file <源文件> <目标文件> <模式> <旧密钥> <旧IV> <新密钥> <新IV>
+    //   container <源容器> <目标容器> <旧密钥> <新密钥>
+    //   bench [块数]     与SAESUtils先解密再加密的做法比较
+    public static void main(String[] args) throws IOException {
+        if (args.length == 8 && args[0].equals("file")) {
+            long start = System.nanoTime();
+            long blocks = rekeyFile(Paths.get(args[1]), Paths.get(args[2]), SAESMode.parse(args[3]),
+                    Integer.parseInt(args[4], 16), Integer.parseInt(args[5], 16),
+                    Integer.parseInt(args[6], 16), Integer.parseInt(args[7], 16));
+            System.out.printf("%d 块，%.3f 秒%n", blocks, (System.nanoTime() - start) / 1e9);
+        } else if (args.length == 5 && args[0].equals("container")) {
+            long start = System.nanoTime();
+            SAESContainer.Header header = rekeyContainer(Paths.get(args[1]), Paths.get(args[2]),
+                    Integer.parseInt(args[3], 16), Integer.parseInt(args[4], 16));
+            System.out.println(header);
+            System.out.printf("%.3f 秒%n", (System.nanoTime() - start) / 1e9);
+        } else if (args.length >= 1 && args[0].equals("bench")) {
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+            Random random = new Random(1);
+            int[] plain = random.ints(count, 0, KEY_SPACE).toArray();
+            for (SAESMode mode : SAESMode.values()) {
+                // CTR的16位计数器限制同一IV最多CTR_MAX_BLOCKS块
+                int n = mode == SAESMode.CTR ? (int) Math.min(count, SAESUtils.CTR_MAX_BLOCKS) : count;
+                int[] old = Arrays.copyOf(plain, n);
+                SAESUtils.encryptBlocks(mode, 0x2D55, 0x1A2B, 0, old, 0, n);
+                List<Integer> list = SAESUtils.toList(old);
+
+                long start = System.nanoTime();
+                int[] expected;
+                if (mode == SAESMode.CBC) {
+                    expected = SAESUtils.toArray(SAESUtils.encryptCBC(SAESUtils.decryptCBC(list, 0x2D55, 0x1A2B), 0x4B5C, 0x7E01));
+                } else {
+                    expected = SAESUtils.toArray(list);
+                    SAESUtils.decryptBlocks(mode, 0x2D55, 0x1A2B, 0, expected, 0, n);
+                    SAESUtils.encryptBlocks(mode, 0x4B5C, 0x7E01, 0, expected, 0, n);
+                }
+                double twoPass = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                Tables tables = new Tables(mode, 0x2D55, 0x1A2B, 0x4B5C, 0x7E01);
+                ByteBuffer buf = ByteBuffer.allocate(n * 2);
+                for (int block : old) {
+                    buf.putChar((char) block);
+                }
+                buf.flip();
+                apply(tables, buf, 0, new Chain(0x1A2B, 0x7E01));
+                double fused = (System.nanoTime() - start) / 1e6;
+                boolean same = true;
+                for (int i = 0; i < n; i++) {
+                    same &= buf.getChar(2 * i) == expected[i];
+                }
+                System.out.printf("%s: 解密再加密 %.1f ms，融合表（含建表） %.1f ms，结果%s%n",
+                        mode, twoPass, fused, same ? "一致" : "不一致");
+            }
+        } else {
+            System.out.println("用法: java SAESRekey file <源> <目标> <模式> <旧密钥> <旧IV> <新密钥> <新IV>");
+            System.out.println("      java SAESRekey container <源容器> <目标容器> <旧密钥> <新密钥>");
+            System.out.println("      java SAESRekey bench [块数]");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR事件：攻击/密钥搜索任务的一段进度
+// 搜索引擎按工作分片提交，一个分片对应一个事件
+@Name("saes.Search")
+@Label("S-AES Key Search")
+@Category({"S-AES", "Search"})
+@Description("密钥搜索或攻击任务中一个分片的已测试密钥数与候选数")
+@Enabled(false)
+@StackTrace(false)
+public class SAESSearchEvent extends Event {
+    @Label("Job")
+    String job;
+
+    @Label("Keys Tested")
+    long keysTested;
+
+    @Label("Candidates")
+    long candidates;
+
+    public static SAESSearchEvent start() {
+        SAESSearchEvent event = new SAESSearchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String job, long keysTested, long candidates) {
+        end();
+        if (shouldCommit()) {
+            this.job = job;
+            this.keysTested = keysTested;
+            this.candidates = candidates;
+            commit();
+        }
+    }
+}
\ No newline at end of file
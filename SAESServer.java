@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// 本地加解密服务：单个Selector线程处理所有连接，请求交给SAESBatchService，
+// 不同连接中同一密钥的请求在批量服务中合并为一次批量引擎调用
+// 协议（大端序）：
+//   请求  u32 请求号 | u8 操作(0加密 1解密) | u8 模式(SAESMode序号) | u8 密钥个数(1..3) | u16 密钥×n | u16 IV |
+//         u32 块数 | u16 数据块×块数
+//   响应  u32 请求号 | u8 状态(0成功 1失败) | u32 长度 | 成功时为u16数据块×长度，失败时为长度个字节的UTF-8错误信息
+// 同一连接可以连续发送多个请求而不等待响应（流水线），响应按请求顺序返回
+// 每个连接的读写缓冲区是直接缓冲区，在连接生命周期内复用；帧超出读缓冲区时才扩容
+// 反压：单连接未完成请求达到MAX_PIPELINE，或批量服务队列已满时，暂停读取该连接
+public class SAESServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7316;
+
+    public static final int OP_ENCRYPT = 0;
+    public static final int OP_DECRYPT = 1;
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERROR = 1;
+
+    // 单个请求最多的块数
+    public static final int MAX_BLOCKS = 1 << 20;
+    static final int REQUEST_HEADER = 4 + 1 + 1 + 1;
+    static final int RESPONSE_HEADER = 4 + 1 + 4;
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_PIPELINE = 1024;
+    static final int MAX_ERROR_BYTES = 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final SAESBatchService service;
+    private final boolean ownsService;
+    private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+    private final List<Connection> paused = new ArrayList<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // 一个尚未写完的响应
+    private static final class Pending {
+        final int id;
+        final CompletableFuture<int[]> future;
+        int[] blocks;
+        // 已写出的数据块数，-1表示响应头尚未写出（错误信息随响应头一次写出）
+        int written = -1;
+
+        Pending(int id, CompletableFuture<int[]> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        // 因批量服务队列已满而未能提交的请求
+        SAESBatchService.Request stalled;
+        int stalledId;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public SAESServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), new SAESBatchService(), true);
+    }
+
+    public SAESServer(InetSocketAddress address, SAESBatchService service) throws IOException {
+        this(address, service, false);
+    }
+
+    private SAESServer(InetSocketAddress address, SAESBatchService service, boolean ownsService) throws IOException {
+        this.service = service;
+        this.ownsService = ownsService;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::run, "saes-server");
+        this.thread.setDaemon(true);
+    }
+
+    public SAESServer start() {
+        thread.start();
+        return this;
+    }
+
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    // ---- 事件循环 ----
+
+    private void run() {
+        try {
+            while (!closed) {
+                // 有暂停的连接时定期重试，否则等待网络事件或完成通知
+                selector.select(paused.isEmpty() ? 0 : 1);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        disconnect(connection);
+                    }
+                }
+                selector.selectedKeys().clear();
+                Connection connection;
+                while ((connection = ready.poll()) != null) {
+                    try {
+                        flush(connection);
+                    } catch (IOException | RuntimeException e) {
+                        disconnect(connection);
+                    }
+                }
+                resumePaused();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                System.err.println("服务器异常退出: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        paused.remove(connection);
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            disconnect(connection);
+            return;
+        }
+        parse(connection);
+    }
+
+    // 从读缓冲区解析完整的请求帧并提交，不完整的帧留待下次读取
+    private void parse(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+        try {
+            while (connection.stalled == null && connection.pending.size() < MAX_PIPELINE) {
+                int frameStart = in.position();
+                if (in.remaining() < REQUEST_HEADER) {
+                    break;
+                }
+                int id = in.getInt();
+                int op = in.get() & 0xFF;
+                int modeIndex = in.get() & 0xFF;
+                int keyCount = in.get() & 0xFF;
+                if (op > OP_DECRYPT || modeIndex >= SAESMode.values().length || keyCount < 1 || keyCount > 3) {
+                    throw new IOException("请求格式错误");
+                }
+                if (in.remaining() < keyCount * 2 + 2 + 4) {
+                    in.position(frameStart);
+                    break;
+                }
+                int[] keys = new int[keyCount];
+                for (int i = 0; i < keyCount; i++) {
+                    keys[i] = in.getShort() & 0xFFFF;
+                }
+                int iv = in.getShort() & 0xFFFF;
+                int length = in.getInt();
+                if (length < 0 || length > MAX_BLOCKS) {
+                    throw new IOException("请求块数超出范围: " + length);
+                }
+                if (in.remaining() < length * 2) {
+                    in.position(frameStart);
+                    ensureCapacity(connection, REQUEST_HEADER + keyCount * 2 + 2 + 4 + length * 2);
+                    in = connection.in;
+                    break;
+                }
+                int[] blocks = new int[length];
+                for (int i = 0; i < length; i++) {
+                    blocks[i] = in.getShort() & 0xFFFF;
+                }
+                SAESMode mode = SAESMode.values()[modeIndex];
+                SAESBatchService.Request request;
+                try {
+                    request = op == OP_ENCRYPT ? SAESBatchService.Request.encrypt(mode, iv, blocks, keys)
+                            : SAESBatchService.Request.decrypt(mode, iv, blocks, keys);
+                } catch (IllegalArgumentException e) {
+                    connection.pending.add(new Pending(id, CompletableFuture.failedFuture(e)));
+                    ready.add(connection);
+                    selector.wakeup();
+                    continue;
+                }
+                connection.stalled = request;
+                connection.stalledId = id;
+                submitStalled(connection);
+            }
+        } finally {
+            in.compact();
+        }
+        updateInterest(connection);
+    }
+
+    // 帧大于读缓冲区时换用更大的直接缓冲区，缓冲区处于读模式
+    private static void ensureCapacity(Connection connection, int frameBytes) {
+        if (frameBytes <= connection.in.capacity()) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocateDirect(frameBytes);
+        larger.put(connection.in);
+        larger.flip();
+        connection.in = larger;
+    }
+
+    private boolean submitStalled(Connection connection) {
+        CompletableFuture<int[]> future;
+        try {
+            future = service.offer(connection.stalled, 0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (future == null) {
+            return false;
+        }
+        connection.pending.add(new Pending(connection.stalledId, future));
+        connection.stalled = null;
+        future.whenComplete((result, error) -> {
+            ready.add(connection);
+            selector.wakeup();
+        });
+        return true;
+    }
+
+    // 未完成请求过多或有请求提交失败时暂停读取
+    private void updateInterest(Connection connection) {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        boolean blocked = connection.stalled != null || connection.pending.size() >= MAX_PIPELINE;
+        int ops = blocked ? 0 : SelectionKey.OP_READ;
+        if (connection.out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(ops);
+        if (blocked && !paused.contains(connection)) {
+            paused.add(connection);
+        }
+    }
+
+    // 某个连接的请求格式错误时只断开该连接，不影响事件循环
+    private void resumePaused() {
+        for (int i = paused.size() - 1; i >= 0; i--) {
+            Connection connection = paused.get(i);
+            try {
+                if (connection.stalled != null && !submitStalled(connection)) {
+                    continue;
+                }
+                if (connection.pending.size() < MAX_PIPELINE) {
+                    paused.remove(i);
+                    // 读缓冲区中可能还有已到达的完整请求
+                    parse(connection);
+                }
+            } catch (IOException | RuntimeException e) {
+                // disconnect只会移除下标不小于i的元素（本连接或parse中重新加入的本连接）
+                disconnect(connection);
+            }
+        }
+    }
+
+    // 按请求顺序写出已完成的响应，直到没有可写的响应或套接字发送缓冲区已满
+    private void flush(Connection connection) throws IOException {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        ByteBuffer out = connection.out;
+        boolean more;
+        do {
+            more = fill(connection);
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+        } while (more && out.position() == 0);
+        updateInterest(connection);
+    }
+
+    // 把已完成的响应编码进写缓冲区，缓冲区已满而仍有可写响应时返回true
+    private static boolean fill(Connection connection) {
+        ByteBuffer out = connection.out;
+        Pending head;
+        while ((head = connection.pending.peek()) != null && head.future.isDone()) {
+            if (head.written < 0) {
+                if (out.remaining() < RESPONSE_HEADER + MAX_ERROR_BYTES) {
+                    return true;
+                }
+                writeHeader(head, out);
+            }
+            if (head.blocks != null) {
+                int[] blocks = head.blocks;
+                int count = Math.min(blocks.length - head.written, out.remaining() / 2);
+                for (int i = 0; i < count; i++) {
+                    out.putShort((short) blocks[head.written++]);
+                }
+                if (head.written < blocks.length) {
+                    return true;
+                }
+            }
+            connection.pending.poll();
+        }
+        return false;
+    }
+
+    private static void writeHeader(Pending pending, ByteBuffer out) {
+        out.putInt(pending.id);
+        try {
+            pending.blocks = pending.future.join();
+            out.put((byte) STATUS_OK);
+            out.putInt(pending.blocks.length);
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, MAX_ERROR_BYTES);
+            out.put((byte) STATUS_ERROR);
+            out.putInt(length);
+            out.put(bytes, 0, length);
+        }
+        pending.written = 0;
+    }
+
+    // 等待Selector线程退出期间被中断时仍继续等待，返回前恢复中断标志
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        if (ownsService) {
+            service.close();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 命令行：java SAESServer [端口]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        // 长期运行的服务，启动时即暴露JMX指标
+        SAESMetrics.registerMBean();
+        SAESServer server = new SAESServer(port).start();
+        System.out.println("S-AES服务已在127.0.0.1:" + server.port() + "监听，单块引擎 " + SAESEngines.single().name()
+                + "，批量引擎 " + SAESEngines.bulk().name());
+        server.thread.join();
+    }
+}
\ No newline at end of file
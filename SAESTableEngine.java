@@ -0,0 +1,88 @@
+// 查表引擎：把每一轮拆成按字节查表
+// 半字节替代逐半字节进行，行移位只交换低字节中的两个半字节，列混淆是GF(2)上的线性变换，
+// 因此 L(S(s)) = L(S(高字节)<<8) ⊕ L(S(低字节))，每轮只需两次256项查表和异或
+// 解密时逆列混淆之后紧跟逆半字节替代，无法合并，单独查一次线性表
+// 轮密钥取自全局SAESKeySchedule表
+public class SAESTableEngine implements SAESEngine {
+    public static final String NAME = "table";
+
+    // 第一轮：半字节替代、行移位、列混淆
+    private static final int[] ROUND1_HIGH = new int[256];
+    private static final int[] ROUND1_LOW = new int[256];
+    // 第二轮：半字节替代、行移位
+    private static final int[] ROUND2_HIGH = new int[256];
+    private static final int[] ROUND2_LOW = new int[256];
+    // 逆行移位、逆半字节替代
+    private static final int[] INV_SUB_HIGH = new int[256];
+    private static final int[] INV_SUB_LOW = new int[256];
+    // 逆列混淆
+    private static final int[] INV_MIX_HIGH = new int[256];
+    private static final int[] INV_MIX_LOW = new int[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            // subNibbles(b)的低字节即b替代后的结果
+            int sub = SAESCore.subNibbles(b) & 0xFF;
+            ROUND1_HIGH[b] = SAESCore.mixColumns(SAESCore.shiftRows(sub << 8));
+            ROUND1_LOW[b] = SAESCore.mixColumns(SAESCore.shiftRows(sub));
+            ROUND2_HIGH[b] = SAESCore.shiftRows(sub << 8);
+            ROUND2_LOW[b] = SAESCore.shiftRows(sub);
+            INV_SUB_HIGH[b] = SAESCore.invSubNibbles(SAESCore.invShiftRows(b << 8)) & 0xFF00;
+            INV_SUB_LOW[b] = SAESCore.invSubNibbles(SAESCore.invShiftRows(b)) & 0x00FF;
+            INV_MIX_HIGH[b] = SAESCore.invMixColumns(b << 8);
+            INV_MIX_LOW[b] = SAESCore.invMixColumns(b);
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int encryptBlock(int block, int key) {
+        return encrypt(block, key, SAESKeySchedule.roundKeys(key));
+    }
+
+    @Override
+    public int decryptBlock(int block, int key) {
+        return decrypt(block, key, SAESKeySchedule.roundKeys(key));
+    }
+
+    static int encrypt(int block, int key, int roundKeys) {
+        int state = (block ^ key) & 0xFFFF;
+        state = ROUND1_HIGH[state >>> 8] ^ ROUND1_LOW[state & 0xFF] ^ (roundKeys >>> 16);
+        return ROUND2_HIGH[state >>> 8] ^ ROUND2_LOW[state & 0xFF] ^ (roundKeys & 0xFFFF);
+    }
+
+    static int decrypt(int block, int key, int roundKeys) {
+        int state = (block ^ roundKeys) & 0xFFFF;
+        state = INV_SUB_HIGH[state >>> 8] ^ INV_SUB_LOW[state & 0xFF] ^ (roundKeys >>> 16);
+        state = INV_MIX_HIGH[state >>> 8] ^ INV_MIX_LOW[state & 0xFF];
+        return INV_SUB_HIGH[state >>> 8] ^ INV_SUB_LOW[state & 0xFF] ^ (key & 0xFFFF);
+    }
+
+    @Override
+    public void encrypt(int key, int[] blocks, int offset, int length) {
+        int roundKeys = SAESKeySchedule.roundKeys(key);
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = encrypt(blocks[i], key, roundKeys);
+        }
+    }
+
+    @Override
+    public void decrypt(int key, int[] blocks, int offset, int length) {
+        int roundKeys = SAESKeySchedule.roundKeys(key);
+        for (int i = offset; i < offset + length; i++) {
+            blocks[i] = decrypt(blocks[i], key, roundKeys);
+        }
+    }
+
+    @Override
+    public void encryptUnderKeys(int plaintext, int firstKey, int[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int key = (firstKey + i) & 0xFFFF;
+            out[outOffset + i] = encrypt(plaintext, key, SAESKeySchedule.roundKeys(key));
+        }
+    }
+}
\ No newline at end of file
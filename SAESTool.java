@@ -214,9 +214,49 @@ private int decrypt(int ciphertext, int key) {
     return state;
 }
 
+    // 不输出过程的单块加密，w为keyExpansion的结果，供一致性检查等批量场景使用
+    static int encryptBlock(int plaintext, int[] w) {
+        int state = plaintext ^ ((w[0] << 8) | w[1]);
+        state = subNibbles(state);
+        state = shiftRows(state);
+        state = mixColumns(state);
+        state ^= ((w[2] << 8) | w[3]);
+        state = subNibbles(state);
+        state = shiftRows(state);
+        state ^= ((w[4] << 8) | w[5]);
+        return state;
+    }
+    
+    // 不输出过程的单块解密
+    static int decryptBlock(int ciphertext, int[] w) {
+        int state = ciphertext ^ ((w[4] << 8) | w[5]);
+        state = invShiftRows(state);
+        state = invSubNibbles(state);
+        state ^= ((w[2] << 8) | w[3]);
+        state = invMixColumns(state);
+        state = invShiftRows(state);
+        state = invSubNibbles(state);
+        state ^= ((w[0] << 8) | w[1]);
+        return state;
+    }
+    
+    // 加密各步骤后的状态，顺序见SAESConformance.STAGES
+    static int[] encryptTrace(int plaintext, int key) {
+        int[] w = keyExpansion(key);
+        int[] trace = new int[8];
+        trace[0] = plaintext ^ ((w[0] << 8) | w[1]);
+        trace[1] = subNibbles(trace[0]);
+        trace[2] = shiftRows(trace[1]);
+        trace[3] = mixColumns(trace[2]);
+        trace[4] = trace[3] ^ ((w[2] << 8) | w[3]);
+        trace[5] = subNibbles(trace[4]);
+        trace[6] = shiftRows(trace[5]);
+        trace[7] = trace[6] ^ ((w[4] << 8) | w[5]);
+        return trace;
+    }
     
     // 密钥扩展
-    private int[] keyExpansion(int key) {
+    static int[] keyExpansion(int key) {
         int[] w = new int[6];
         w[0] = (key >> 8) & 0xFF;
         w[1] = key & 0xFF;
@@ -241,7 +281,7 @@ private int decrypt(int ciphertext, int key) {
     }
     
     // 半字节替代
-    private int subNibbles(int state) {
+    private static int subNibbles(int state) {
         int[] nibbles = new int[4];
         nibbles[0] = (state >> 12) & 0xF;
         nibbles[1] = (state >> 8) & 0xF;
@@ -259,7 +299,7 @@ private int decrypt(int ciphertext, int key) {
     }
     
     // 逆半字节替代
-    private int invSubNibbles(int state) {
+    private static int invSubNibbles(int state) {
         int[] nibbles = new int[4];
         nibbles[0] = (state >> 12) & 0xF;
         nibbles[1] = (state >> 8) & 0xF;
@@ -278,7 +318,7 @@ private int decrypt(int ciphertext, int key) {
     
     // 行移位
     // 标准的S-AES行移位实现
-    private int shiftRows(int state) {
+    private static int shiftRows(int state) {
     // 提取四个半字节
     int s00 = (state >> 12) & 0xF;
     int s01 = (state >> 8) & 0xF;
@@ -290,13 +330,13 @@ private int decrypt(int ciphertext, int key) {
     }
     
     // 逆行移位
-    private int invShiftRows(int state) {
+    private static int invShiftRows(int state) {
         // 逆操作与原操作相同，因为只交换一次
         return shiftRows(state);
     }
     
     // 列混淆
-  private int mixColumns(int state) {
+  private static int mixColumns(int state) {
     // 将状态表示为2x2矩阵
     // s00 s01
     // s10 s11
@@ -315,7 +355,7 @@ private int decrypt(int ciphertext, int key) {
     return (s00_prime << 12) | (s01_prime << 8) | (s10_prime << 4) | s11_prime;
 }
     // 逆列混淆
-private int invMixColumns(int state) {
+private static int invMixColumns(int state) {
     // 将状态表示为2x2矩阵
     int s00 = (state >> 12) & 0xF;
     int s01 = (state >> 8) & 0xF;
@@ -331,12 +371,12 @@ private int invMixColumns(int state) {
     return (s00_prime << 12) | (s01_prime << 8) | (s10_prime << 4) | s11_prime;
 }
     // 半字节旋转
-    private int rotNib(int value) {
+    private static int rotNib(int value) {
         return ((value & 0xF) << 4) | ((value >> 4) & 0xF);
     }
     
     // 单个半字节的S盒替代
-    private int subNib(int value) {
+    private static int subNib(int value) {
         int nib1 = (value >> 4) & 0xF;
         int nib2 = value & 0xF;
         
@@ -349,7 +389,7 @@ private int invMixColumns(int state) {
     }
     
     // 伽罗瓦域GF(2^4)上的乘法
-    private int gmul(int a, int b) {
+    private static int gmul(int a, int b) {
         int p = 0;
         int hi_bit_set;
         for (int i = 0; i < 4; i++) {
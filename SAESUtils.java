@@ -1,8 +1,24 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SAESUtils {
-    // 将ASCII字符串转换为16位数据块
+    // CTR计数器只有16位（iv + 块号，按16位回绕），同一IV下最多CTR_MAX_BLOCKS块（128 KiB）而密钥流不重复
+    public static final long CTR_MAX_BLOCKS = 0x10000;
+
+    // 将文本按UTF-8编码并填充为16位数据块，可与blocksToText精确往返
+    public static List<Integer> textToBlocks(String text) {
+        return toList(SAESCodec.encodeText(text));
+    }
+    
+    // 将带填充的数据块还原为文本
+    public static String blocksToText(List<Integer> blocks) {
+        int[] array = toArray(blocks);
+        return SAESCodec.decodeText(array, 0, array.length);
+    }
+    
+    // 将单字节字符串（每个字符0-255，如ASCII形式显示的密文）转换为16位数据块
+    // 注意：字符会被截断为低8位，明文文本请使用textToBlocks
     public static List<Integer> asciiToBlocks(String text) {
         List<Integer> blocks = new ArrayList<>();
         int i = 0;
@@ -23,7 +39,7 @@ public class SAESUtils {
         return blocks;
     }
     
-    // 将数据块转换为ASCII字符串
+    // 将数据块按每字节一个字符转换为字符串（用于显示密文）
     public static String blocksToAscii(List<Integer> blocks) {
         StringBuilder sb = new StringBuilder();
         for (Integer block : blocks) {
@@ -59,102 +75,288 @@ public class SAESUtils {
         return blocks;
     }
     
+    // 单块双重加密：使用key1加密后用key2再加密
+    public static int doubleEncrypt(int plaintext, int key1, int key2) {
+        SAESEngine engine = SAESEngines.single();
+        return engine.encryptBlock(engine.encryptBlock(plaintext, key1), key2);
+    }
+    
+    // 单块双重解密：使用key2解密后用key1再解密
+    public static int doubleDecrypt(int ciphertext, int key1, int key2) {
+        SAESEngine engine = SAESEngines.single();
+        return engine.decryptBlock(engine.decryptBlock(ciphertext, key2), key1);
+    }
+    
+    // 单块三重加密 (Encrypt-Decrypt-Encrypt)
+    public static int tripleEncrypt(int plaintext, int key1, int key2, int key3) {
+        SAESEngine engine = SAESEngines.single();
+        return engine.encryptBlock(engine.decryptBlock(engine.encryptBlock(plaintext, key1), key2), key3);
+    }
+    
+    // 单块三重解密 (Decrypt-Encrypt-Decrypt)
+    public static int tripleDecrypt(int ciphertext, int key1, int key2, int key3) {
+        SAESEngine engine = SAESEngines.single();
+        return engine.decryptBlock(engine.encryptBlock(engine.decryptBlock(ciphertext, key3), key2), key1);
+    }
+    
+    // 使用ECB模式加密多块数据
+    public static List<Integer> encryptECB(List<Integer> plaintextBlocks, int key) {
+        int[] blocks = toArray(plaintextBlocks);
+        encryptBlocks(SAESMode.ECB, key, 0, 0, blocks, 0, blocks.length);
+        return toList(blocks);
+    }
+    
+    // 使用ECB模式解密多块数据
+    public static List<Integer> decryptECB(List<Integer> ciphertextBlocks, int key) {
+        int[] blocks = toArray(ciphertextBlocks);
+        decryptBlocks(SAESMode.ECB, key, 0, 0, blocks, 0, blocks.length);
+        return toList(blocks);
+    }
+    
+    // 使用ECB模式进行双重加密
+    public static List<Integer> doubleEncryptECB(List<Integer> plaintextBlocks, int key1, int key2) {
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] blocks = toArray(plaintextBlocks);
+        engine.encrypt(key1, blocks, 0, blocks.length);
+        engine.encrypt(key2, blocks, 0, blocks.length);
+        SAESMetrics.record("ecb2.encrypt", engine.name(), blocks.length, start);
+        event.finish("ecb2.encrypt", engine.name(), blocks.length);
+        return toList(blocks);
+    }
+    
+    // 使用ECB模式进行双重解密
+    public static List<Integer> doubleDecryptECB(List<Integer> ciphertextBlocks, int key1, int key2) {
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] blocks = toArray(ciphertextBlocks);
+        engine.decrypt(key2, blocks, 0, blocks.length);
+        engine.decrypt(key1, blocks, 0, blocks.length);
+        SAESMetrics.record("ecb2.decrypt", engine.name(), blocks.length, start);
+        event.finish("ecb2.decrypt", engine.name(), blocks.length);
+        return toList(blocks);
+    }
+    
+    // 使用ECB模式进行三重加密
+    public static List<Integer> tripleEncryptECB(List<Integer> plaintextBlocks, int key1, int key2, int key3) {
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] blocks = toArray(plaintextBlocks);
+        engine.encrypt(key1, blocks, 0, blocks.length);
+        engine.decrypt(key2, blocks, 0, blocks.length);
+        engine.encrypt(key3, blocks, 0, blocks.length);
+        SAESMetrics.record("ecb3.encrypt", engine.name(), blocks.length, start);
+        event.finish("ecb3.encrypt", engine.name(), blocks.length);
+        return toList(blocks);
+    }
+    
+    // 使用ECB模式进行三重解密
+    public static List<Integer> tripleDecryptECB(List<Integer> ciphertextBlocks, int key1, int key2, int key3) {
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] blocks = toArray(ciphertextBlocks);
+        engine.decrypt(key3, blocks, 0, blocks.length);
+        engine.encrypt(key2, blocks, 0, blocks.length);
+        engine.decrypt(key1, blocks, 0, blocks.length);
+        SAESMetrics.record("ecb3.decrypt", engine.name(), blocks.length, start);
+        event.finish("ecb3.decrypt", engine.name(), blocks.length);
+        return toList(blocks);
+    }
+    
     // 使用CBC模式加密多块数据
     public static List<Integer> encryptCBC(List<Integer> plaintextBlocks, int key, int iv) {
-        List<Integer> ciphertextBlocks = new ArrayList<>();
-        int previousBlock = iv;
-        
-        for (Integer block : plaintextBlocks) {
-            // 当前块与前一个密文块（或IV）异或
-            int xoredBlock = block ^ previousBlock;
-            // 加密异或后的块
-            int cipherBlock = SAESCore.encrypt(xoredBlock, key)[0];
-            ciphertextBlocks.add(cipherBlock);
-            previousBlock = cipherBlock;
-        }
-        
-        return ciphertextBlocks;
+        int[] blocks = toArray(plaintextBlocks);
+        encryptBlocks(SAESMode.CBC, key, iv, 0, blocks, 0, blocks.length);
+        return toList(blocks);
     }
     
     // 使用CBC模式解密多块数据
     public static List<Integer> decryptCBC(List<Integer> ciphertextBlocks, int key, int iv) {
-        List<Integer> plaintextBlocks = new ArrayList<>();
-        int previousBlock = iv;
-        
-        for (Integer block : ciphertextBlocks) {
-            // 解密当前块
-            int decryptedBlock = SAESCore.decrypt(block, key);
-            // 与前一个密文块（或IV）异或得到明文
-            plaintextBlocks.add(decryptedBlock ^ previousBlock);
-            previousBlock = block;
-        }
-        
-        return plaintextBlocks;
+        int[] blocks = toArray(ciphertextBlocks);
+        decryptBlocks(SAESMode.CBC, key, iv, 0, blocks, 0, blocks.length);
+        return toList(blocks);
     }
     
     // 使用CBC模式进行双重加密
     public static List<Integer> doubleEncryptCBC(List<Integer> plaintextBlocks, int key1, int key2, int iv) {
+        SAESEngine engine = SAESEngines.single();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
         List<Integer> ciphertextBlocks = new ArrayList<>();
         int previousBlock = iv;
         
         for (Integer block : plaintextBlocks) {
-            // 当前块与前一个密文块（或IV）异或
-            int xoredBlock = block ^ previousBlock;
-            // 双重加密异或后的块
-            int cipherBlock = SAESCore.doubleEncrypt(xoredBlock, key1, key2);
+            // 当前块与前一个密文块（或IV）异或后双重加密
+            int cipherBlock = engine.encryptBlock(engine.encryptBlock(block ^ previousBlock, key1), key2);
             ciphertextBlocks.add(cipherBlock);
             previousBlock = cipherBlock;
         }
         
+        SAESMetrics.record("cbc2.encrypt", engine.name(), ciphertextBlocks.size(), start);
+        event.finish("cbc2.encrypt", engine.name(), ciphertextBlocks.size());
         return ciphertextBlocks;
     }
     
-    // 使用CBC模式进行双重解密
+    // 使用CBC模式进行双重解密：各块的解密互不依赖，整段批量解密后再与前一密文块异或
     public static List<Integer> doubleDecryptCBC(List<Integer> ciphertextBlocks, int key1, int key2, int iv) {
-        List<Integer> plaintextBlocks = new ArrayList<>();
-        int previousBlock = iv;
-        
-        for (Integer block : ciphertextBlocks) {
-            // 双重解密当前块
-            int decryptedBlock = SAESCore.doubleDecrypt(block, key1, key2);
-            // 与前一个密文块（或IV）异或得到明文
-            plaintextBlocks.add(decryptedBlock ^ previousBlock);
-            previousBlock = block;
-        }
-        
-        return plaintextBlocks;
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] ciphertext = toArray(ciphertextBlocks);
+        int[] blocks = ciphertext.clone();
+        engine.decrypt(key2, blocks, 0, blocks.length);
+        engine.decrypt(key1, blocks, 0, blocks.length);
+        xorPrevious(blocks, ciphertext, 0, blocks.length, iv);
+        SAESMetrics.record("cbc2.decrypt", engine.name(), blocks.length, start);
+        event.finish("cbc2.decrypt", engine.name(), blocks.length);
+        return toList(blocks);
     }
     
     // 使用CBC模式进行三重加密
     public static List<Integer> tripleEncryptCBC(List<Integer> plaintextBlocks, int key1, int key2, int key3, int iv) {
+        SAESEngine engine = SAESEngines.single();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
         List<Integer> ciphertextBlocks = new ArrayList<>();
         int previousBlock = iv;
         
         for (Integer block : plaintextBlocks) {
-            // 当前块与前一个密文块（或IV）异或
-            int xoredBlock = block ^ previousBlock;
-            // 三重加密异或后的块
-            int cipherBlock = SAESCore.tripleEncrypt(xoredBlock, key1, key2, key3);
+            // 当前块与前一个密文块（或IV）异或后三重加密
+            int cipherBlock = engine.encryptBlock(
+                    engine.decryptBlock(engine.encryptBlock(block ^ previousBlock, key1), key2), key3);
             ciphertextBlocks.add(cipherBlock);
             previousBlock = cipherBlock;
         }
         
+        SAESMetrics.record("cbc3.encrypt", engine.name(), ciphertextBlocks.size(), start);
+        event.finish("cbc3.encrypt", engine.name(), ciphertextBlocks.size());
         return ciphertextBlocks;
     }
     
     // 使用CBC模式进行三重解密
     public static List<Integer> tripleDecryptCBC(List<Integer> ciphertextBlocks, int key1, int key2, int key3, int iv) {
-        List<Integer> plaintextBlocks = new ArrayList<>();
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int[] ciphertext = toArray(ciphertextBlocks);
+        int[] blocks = ciphertext.clone();
+        engine.decrypt(key3, blocks, 0, blocks.length);
+        engine.encrypt(key2, blocks, 0, blocks.length);
+        engine.decrypt(key1, blocks, 0, blocks.length);
+        xorPrevious(blocks, ciphertext, 0, blocks.length, iv);
+        SAESMetrics.record("cbc3.decrypt", engine.name(), blocks.length, start);
+        event.finish("cbc3.decrypt", engine.name(), blocks.length);
+        return toList(blocks);
+    }
+    
+    // 原地加密int数组中的数据块
+    // CBC模式下iv为首块之前的密文块（首段即IV）；CTR模式下首块计数器为iv + firstBlock
+    // ECB/CTR使用批量引擎；CBC加密前后块相互依赖，逐块使用单块引擎
+    // CTR模式下 firstBlock + length 超过CTR_MAX_BLOCKS时抛出IllegalArgumentException
+    public static void encryptBlocks(SAESMode mode, int key, int iv, long firstBlock, int[] blocks, int offset, int length) {
+        if (mode == SAESMode.CTR) {
+            checkCtrRange(firstBlock, length);
+        }
+        SAESEngine engine = mode == SAESMode.CBC ? SAESEngines.single() : SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        int end = offset + length;
+        switch (mode) {
+            case ECB:
+                engine.encrypt(key, blocks, offset, length);
+                break;
+            case CBC:
+                int previousBlock = iv;
+                for (int i = offset; i < end; i++) {
+                    previousBlock = engine.encryptBlock(blocks[i] ^ previousBlock, key);
+                    blocks[i] = previousBlock;
+                }
+                break;
+            case CTR:
+                ctr(engine, key, iv, firstBlock, blocks, offset, length);
+                break;
+        }
+        String operation = mode.name().toLowerCase() + ".encrypt";
+        SAESMetrics.record(operation, engine.name(), length, start);
+        event.finish(operation, engine.name(), length);
+    }
+    
+    // 原地解密int数组中的数据块，参数含义同encryptBlocks；三种模式都使用批量引擎
+    public static void decryptBlocks(SAESMode mode, int key, int iv, long firstBlock, int[] blocks, int offset, int length) {
+        if (mode == SAESMode.CTR) {
+            checkCtrRange(firstBlock, length);
+        }
+        SAESEngine engine = SAESEngines.bulk();
+        SAESCipherEvent event = SAESCipherEvent.start();
+        long start = SAESMetrics.start();
+        switch (mode) {
+            case ECB:
+                engine.decrypt(key, blocks, offset, length);
+                break;
+            case CBC:
+                int[] ciphertext = Arrays.copyOfRange(blocks, offset, offset + length);
+                engine.decrypt(key, blocks, offset, length);
+                xorPrevious(blocks, ciphertext, offset, length, iv);
+                break;
+            case CTR:
+                ctr(engine, key, iv, firstBlock, blocks, offset, length);
+                break;
+        }
+        String operation = mode.name().toLowerCase() + ".decrypt";
+        SAESMetrics.record(operation, engine.name(), length, start);
+        event.finish(operation, engine.name(), length);
+    }
+    
+    // CBC解密的最后一步：blocks[offset + i] ^= 前一个密文块（首块为iv），ciphertext从下标0开始
+    private static void xorPrevious(int[] blocks, int[] ciphertext, int offset, int length, int iv) {
         int previousBlock = iv;
-        
-        for (Integer block : ciphertextBlocks) {
-            // 三重解密当前块
-            int decryptedBlock = SAESCore.tripleDecrypt(block, key1, key2, key3);
-            // 与前一个密文块（或IV）异或得到明文
-            plaintextBlocks.add(decryptedBlock ^ previousBlock);
-            previousBlock = block;
+        for (int i = 0; i < length; i++) {
+            blocks[offset + i] ^= previousBlock;
+            previousBlock = ciphertext[i];
         }
-        
-        return plaintextBlocks;
+    }
+    
+    // 检查CTR模式下块号区间[firstBlock, firstBlock + length)的计数器不会回绕
+    public static void checkCtrRange(long firstBlock, long length) {
+        if (firstBlock < 0 || length < 0 || firstBlock + length > CTR_MAX_BLOCKS) {
+            throw new IllegalArgumentException(String.format(
+                    "CTR模式的16位计数器会回绕，密钥流将重复：同一IV最多%d块（128 KiB），请改用CBC", CTR_MAX_BLOCKS));
+        }
+    }
+
+    // CTR模式加解密相同：批量加密计数器后与数据异或
+    private static void ctr(SAESEngine engine, int key, int iv, long firstBlock, int[] blocks, int offset, int length) {
+        int[] keystream = new int[length];
+        int counter = (int) ((iv + firstBlock) & 0xFFFF);
+        for (int i = 0; i < length; i++) {
+            keystream[i] = counter;
+            counter = (counter + 1) & 0xFFFF;
+        }
+        engine.encrypt(key, keystream, 0, length);
+        for (int i = 0; i < length; i++) {
+            blocks[offset + i] ^= keystream[i];
+        }
+    }
+    
+    // 数据块列表转换为int数组
+    static int[] toArray(List<Integer> blocks) {
+        int[] array = new int[blocks.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = blocks.get(i);
+        }
+        return array;
+    }
+    
+    // int数组转换为数据块列表
+    static List<Integer> toList(int[] blocks) {
+        List<Integer> list = new ArrayList<>(blocks.length);
+        for (int block : blocks) {
+            list.add(block);
+        }
+        return list;
     }
 }
\ No newline at end of file
@@ -0,0 +1,415 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+// 可配置轮数与S盒的S-AES变体
+//   第1..N-1轮：半字节替代、行移位、列混淆、轮密钥加；第N轮不做列混淆；N = 2且使用标准S盒时与SAESCore相同
+//   密钥扩展推广到N轮：w[2i] = w[2i-2] ⊕ SubNib(RotNib(w[2i-1])) ⊕ RCON(i)，w[2i+1] = w[2i] ⊕ w[2i-1]
+//   RCON(i) = x^(i+2) mod (x^4 + x + 1) 放在高半字节，i = 1、2时即0x80、0x30
+// 对给定参数在运行时生成展开了全部轮次、常量已折叠的Java源码，用javax.tools在内存中编译，
+// 再通过Lookup.defineHiddenClass定义为隐藏类，JIT看到的是与手写类相同的直线代码
+// 运行环境没有编译器（只有JRE）或 -Dsaes.variants.generate=false 时退回到按轮循环的通用实现；
+// 编译或定义类失败时同样退回，并在标准错误输出上报告原因（编译错误或异常信息）
+public class SAESVariants {
+    public static final String CACHE_NAME = "variant-classes";
+    public static final int MAX_ROUNDS = 16;
+
+    private static final ConcurrentHashMap<String, SAESEngine> generated = new ConcurrentHashMap<>();
+
+    // 变体参数及由其导出的查表数据
+    static final class Spec {
+        final int rounds;
+        final int[] sBox;
+        final String name;
+        // 完整一轮（替代、行移位、列混淆）与最后一轮（替代、行移位）按字节查表
+        final int[] fullHigh = new int[256];
+        final int[] fullLow = new int[256];
+        final int[] lastHigh = new int[256];
+        final int[] lastLow = new int[256];
+        // 逆行移位、逆替代；逆列混淆
+        final int[] invSubHigh = new int[256];
+        final int[] invSubLow = new int[256];
+        final int[] invMixHigh = new int[256];
+        final int[] invMixLow = new int[256];
+        // 密钥扩展：SubNib(RotNib(b))
+        final int[] subRot = new int[256];
+        final int[] rcon;
+
+        Spec(int rounds, int[] sBox) {
+            if (rounds < 1 || rounds > MAX_ROUNDS) {
+                throw new IllegalArgumentException("轮数必须在1到" + MAX_ROUNDS + "之间");
+            }
+            if (sBox.length != 16 || Arrays.stream(sBox).distinct().count() != 16
+                    || Arrays.stream(sBox).anyMatch(v -> v < 0 || v > 15)) {
+                throw new IllegalArgumentException("S盒必须是0到15的一个置换");
+            }
+            this.rounds = rounds;
+            this.sBox = sBox.clone();
+            int[] inverse = new int[16];
+            for (int i = 0; i < 16; i++) {
+                inverse[sBox[i]] = i;
+            }
+            for (int b = 0; b < 256; b++) {
+                int sub = substitute(this.sBox, b);
+                fullHigh[b] = SAESCore.mixColumns(SAESCore.shiftRows(sub << 8));
+                fullLow[b] = SAESCore.mixColumns(SAESCore.shiftRows(sub));
+                lastHigh[b] = SAESCore.shiftRows(sub << 8);
+                lastLow[b] = SAESCore.shiftRows(sub);
+                invSubHigh[b] = substitute(inverse, b) << 8;
+                invSubLow[b] = substitute(inverse, SAESCore.invShiftRows(b));
+                invMixHigh[b] = SAESCore.invMixColumns(b << 8);
+                invMixLow[b] = SAESCore.invMixColumns(b);
+                subRot[b] = substitute(this.sBox, ((b & 0xF) << 4) | (b >>> 4));
+            }
+            rcon = new int[rounds + 1];
+            int power = 0x4; // x^2
+            for (int i = 1; i <= rounds; i++) {
+                power <<= 1;
+                if ((power & 0x10) != 0) {
+                    power ^= 0x13; // x^4 + x + 1
+                }
+                rcon[i] = power << 4;
+            }
+            this.name = "v" + rounds + (Arrays.equals(this.sBox, SAESCore.sBox()) ? "" : "-" + checksum(this.sBox));
+        }
+
+        private static int substitute(int[] box, int b) {
+            return (box[b >>> 4] << 4) | box[b & 0xF];
+        }
+
+        private static String checksum(int[] sBox) {
+            CRC32 crc = new CRC32();
+            for (int v : sBox) {
+                crc.update(v);
+            }
+            return String.format("%08x", crc.getValue());
+        }
+
+        String key() {
+            return rounds + ":" + Arrays.toString(sBox);
+        }
+
+        // 打包的轮密钥 K0..KN
+        int[] roundKeys(int key) {
+            int[] keys = new int[rounds + 1];
+            int even = (key >>> 8) & 0xFF;
+            int odd = key & 0xFF;
+            keys[0] = key & 0xFFFF;
+            for (int i = 1; i <= rounds; i++) {
+                even ^= subRot[odd] ^ rcon[i];
+                odd ^= even;
+                keys[i] = (even << 8) | odd;
+            }
+            return keys;
+        }
+    }
+
+    public static SAESEngine create(int rounds) {
+        return create(rounds, SAESCore.sBox());
+    }
+
+    // 返回指定参数的引擎，同一参数只生成一次
+    public static SAESEngine create(int rounds, int[] sBox) {
+        Spec spec = new Spec(rounds, sBox);
+        SAESEngine engine = generated.get(spec.key());
+        if (engine != null) {
+            SAESMetrics.cacheHit(CACHE_NAME);
+            return engine;
+        }
+        SAESMetrics.cacheMiss(CACHE_NAME);
+        return generated.computeIfAbsent(spec.key(), k -> {
+            SAESEngine result = "false".equalsIgnoreCase(System.getProperty("saes.variants.generate"))
+                    ? null : define(spec);
+            return result != null ? result : new GenericEngine(spec);
+        });
+    }
+
+    // 通用实现，供对照与退回
+    public static SAESEngine generic(int rounds, int[] sBox) {
+        return new GenericEngine(new Spec(rounds, sBox));
+    }
+
+    // ---- 代码生成 ----
+
+    private static SAESEngine define(Spec spec) {
+        SAESCacheEvent event = SAESCacheEvent.start();
+        String className = "SAESVariant_" + spec.name.replace('-', '_');
+        byte[] bytes = compile(className, source(className, spec));
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            SAESEngine engine = (SAESEngine) lookup.lookupClass().getDeclaredConstructor().newInstance();
+            event.finish(CACHE_NAME, SAESCacheEvent.BUILD, 1, bytes.length);
+            return engine;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            reportFailure(className, e.toString());
+            return null;
+        }
+    }
+
+    private static void reportFailure(String className, String reason) {
+        System.err.println("生成变体类" + className + "失败，改用通用实现: " + reason);
+    }
+
+    // 生成源码：所有轮次展开为直线代码，表内容与RCON都是字面常量
+    static String source(String className, Spec spec) {
+        int n = spec.rounds;
+        StringBuilder sb = new StringBuilder();
+        sb.append("public final class ").append(className).append(" implements SAESEngine {\n");
+        table(sb, "FULL_HIGH", spec.fullHigh);
+        table(sb, "FULL_LOW", spec.fullLow);
+        table(sb, "LAST_HIGH", spec.lastHigh);
+        table(sb, "LAST_LOW", spec.lastLow);
+        table(sb, "INV_SUB_HIGH", spec.invSubHigh);
+        table(sb, "INV_SUB_LOW", spec.invSubLow);
+        table(sb, "INV_MIX_HIGH", spec.invMixHigh);
+        table(sb, "INV_MIX_LOW", spec.invMixLow);
+        table(sb, "SUB_ROT", spec.subRot);
+        sb.append("    public String name() { return \"").append(spec.name).append("\"; }\n");
+
+        // 单块加密：密钥扩展与各轮交错进行
+        sb.append("    public int encryptBlock(int block, int key) {\n");
+        sb.append("        int e = (key >>> 8) & 0xFF, o = key & 0xFF;\n");
+        sb.append("        int s = (block ^ key) & 0xFFFF;\n");
+        for (int i = 1; i <= n; i++) {
+            keyStep(sb, spec, i);
+            sb.append(i < n ? "        s = FULL_HIGH[s >>> 8] ^ FULL_LOW[s & 0xFF] ^ (e << 8 | o);\n"
+                    : "        s = LAST_HIGH[s >>> 8] ^ LAST_LOW[s & 0xFF] ^ (e << 8 | o);\n");
+        }
+        sb.append("        return s;\n    }\n");
+
+        // 单块解密：先展开全部轮密钥
+        sb.append("    public int decryptBlock(int block, int key) {\n");
+        expandKeys(sb, spec);
+        decryptBody(sb, n, "block", "        ");
+        sb.append("        return s;\n    }\n");
+
+        // 批量加解密：轮密钥只展开一次
+        sb.append("    public void encrypt(int key, int[] blocks, int offset, int length) {\n");
+        expandKeys(sb, spec);
+        sb.append("        for (int i = offset; i < offset + length; i++) {\n");
+        sb.append("            int s = (blocks[i] ^ k0) & 0xFFFF;\n");
+        for (int i = 1; i <= n; i++) {
+            sb.append(i < n ? "            s = FULL_HIGH[s >>> 8] ^ FULL_LOW[s & 0xFF] ^ k" + i + ";\n"
+                    : "            s = LAST_HIGH[s >>> 8] ^ LAST_LOW[s & 0xFF] ^ k" + i + ";\n");
+        }
+        sb.append("            blocks[i] = s;\n        }\n    }\n");
+        sb.append("    public void decrypt(int key, int[] blocks, int offset, int length) {\n");
+        expandKeys(sb, spec);
+        sb.append("        for (int i = offset; i < offset + length; i++) {\n");
+        decryptBody(sb, n, "blocks[i]", "            ");
+        sb.append("            blocks[i] = s;\n        }\n    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void table(StringBuilder sb, String name, int[] values) {
+        sb.append("    private static final int[] ").append(name).append(" = {");
+        for (int i = 0; i < values.length; i++) {
+            sb.append(i % 16 == 0 ? "\n        " : " ").append(values[i]).append(',');
+        }
+        sb.append("\n    };\n");
+    }
+
+    private static void keyStep(StringBuilder sb, Spec spec, int i) {
+        sb.append("        e ^= SUB_ROT[o] ^ ").append(spec.rcon[i]).append(";\n");
+        sb.append("        o ^= e;\n");
+    }
+
+    private static void expandKeys(StringBuilder sb, Spec spec) {
+        sb.append("        int e = (key >>> 8) & 0xFF, o = key & 0xFF;\n");
+        sb.append("        final int k0 = key & 0xFFFF;\n");
+        for (int i = 1; i <= spec.rounds; i++) {
+            keyStep(sb, spec, i);
+            sb.append("        final int k").append(i).append(" = e << 8 | o;\n");
+        }
+    }
+
+    private static void decryptBody(StringBuilder sb, int n, String input, String indent) {
+        sb.append(indent).append("int s = (").append(input).append(" ^ k").append(n).append(") & 0xFFFF;\n");
+        sb.append(indent).append("s = INV_SUB_HIGH[s >>> 8] ^ INV_SUB_LOW[s & 0xFF] ^ k").append(n - 1).append(";\n");
+        for (int j = n - 1; j >= 1; j--) {
+            sb.append(indent).append("s = INV_MIX_HIGH[s >>> 8] ^ INV_MIX_LOW[s & 0xFF];\n");
+            sb.append(indent).append("s = INV_SUB_HIGH[s >>> 8] ^ INV_SUB_LOW[s & 0xFF] ^ k").append(j - 1).append(";\n");
+        }
+    }
+
+    // 在内存中编译单个源文件，失败或没有编译器时返回null；编译失败时报告编译错误
+    static byte[] compile(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return null;
+        }
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + className + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+        JavaFileManager manager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + name + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classBytes;
+                    }
+                };
+            }
+        };
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                "-proc:none", "-g:none", "-nowarn", "-Xlint:none");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Boolean ok = compiler.getTask(null, manager, diagnostics, options, null, List.of(sourceFile)).call();
+        if (!Boolean.TRUE.equals(ok)) {
+            reportFailure(className, diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(d -> "第" + d.getLineNumber() + "行 " + d.getMessage(null))
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        return classBytes.toByteArray();
+    }
+
+    // ---- 通用实现 ----
+
+    static final class GenericEngine implements SAESEngine {
+        private final Spec spec;
+
+        GenericEngine(Spec spec) {
+            this.spec = spec;
+        }
+
+        @Override
+        public String name() {
+            return spec.name + "-generic";
+        }
+
+        @Override
+        public int encryptBlock(int block, int key) {
+            return encrypt(block, spec.roundKeys(key));
+        }
+
+        @Override
+        public int decryptBlock(int block, int key) {
+            return decrypt(block, spec.roundKeys(key));
+        }
+
+        private int encrypt(int block, int[] keys) {
+            int n = spec.rounds;
+            int s = (block ^ keys[0]) & 0xFFFF;
+            for (int i = 1; i < n; i++) {
+                s = spec.fullHigh[s >>> 8] ^ spec.fullLow[s & 0xFF] ^ keys[i];
+            }
+            return spec.lastHigh[s >>> 8] ^ spec.lastLow[s & 0xFF] ^ keys[n];
+        }
+
+        private int decrypt(int block, int[] keys) {
+            int n = spec.rounds;
+            int s = (block ^ keys[n]) & 0xFFFF;
+            s = spec.invSubHigh[s >>> 8] ^ spec.invSubLow[s & 0xFF] ^ keys[n - 1];
+            for (int j = n - 1; j >= 1; j--) {
+                s = spec.invMixHigh[s >>> 8] ^ spec.invMixLow[s & 0xFF];
+                s = spec.invSubHigh[s >>> 8] ^ spec.invSubLow[s & 0xFF] ^ keys[j - 1];
+            }
+            return s;
+        }
+
+        @Override
+        public void encrypt(int key, int[] blocks, int offset, int length) {
+            int[] keys = spec.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = encrypt(blocks[i], keys);
+            }
+        }
+
+        @Override
+        public void decrypt(int key, int[] blocks, int offset, int length) {
+            int[] keys = spec.roundKeys(key);
+            for (int i = offset; i < offset + length; i++) {
+                blocks[i] = decrypt(blocks[i], keys);
+            }
+        }
+    }
+
+    // ---- 命令行工具 ----
+
+    // 批量加密吞吐量（纳秒/块），取多轮中的最小值
+    private static double benchmark(SAESEngine engine, int[] data) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 30; round++) {
+            long start = System.nanoTime();
+            engine.encrypt(round, data, 0, data.length);
+            engine.decrypt(round, data, 0, data.length);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / (2 * data.length);
+    }
+
+    //   java SAESVariants [轮数] [S盒（16个16进制数字）]
+    // 生成变体，与通用实现抽样比对后输出吞吐量；2轮标准S盒时再与查表引擎和参考实现比较
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int[] sBox = SAESCore.sBox();
+        if (args.length > 1) {
+            if (args[1].length() != 16) {
+                throw new IllegalArgumentException("S盒必须是16个16进制数字");
+            }
+            for (int i = 0; i < 16; i++) {
+                sBox[i] = Character.digit(args[1].charAt(i), 16);
+            }
+        }
+        long start = System.nanoTime();
+        SAESEngine engine = create(rounds, sBox);
+        System.out.printf("引擎 %s (%s)，生成耗时 %.1f ms%n", engine.name(),
+                engine instanceof GenericEngine ? "通用实现" : "隐藏类", (System.nanoTime() - start) / 1e6);
+
+        SAESEngine generic = generic(rounds, sBox);
+        SAESEngine reference = rounds == 2 && Arrays.equals(sBox, SAESCore.sBox()) ? SAESEngines.reference() : generic;
+        Random random = new Random(1);
+        int mismatches = 0;
+        for (int i = 0; i < 1 << 20; i++) {
+            int key = random.nextInt(0x10000);
+            int block = random.nextInt(0x10000);
+            int c = engine.encryptBlock(block, key);
+            if (c != reference.encryptBlock(block, key) || c != generic.encryptBlock(block, key)
+                    || engine.decryptBlock(c, key) != block) {
+                mismatches++;
+            }
+        }
+        System.out.println("抽样比对不一致: " + mismatches + (reference == generic ? "（对照通用实现）" : "（对照SAESCore）"));
+
+        int[] data = new int[0x10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        System.out.printf("生成: %.2f ns/块%n", benchmark(engine, data));
+        System.out.printf("通用: %.2f ns/块%n", benchmark(generic, data));
+        if (reference != generic) {
+            System.out.printf("查表引擎: %.2f ns/块%n", benchmark(SAESEngines.get(SAESTableEngine.NAME), data));
+        }
+    }
+}
\ No newline at end of file
@@ -29,15 +29,15 @@ public class TripleEncryptionDialog extends JDialog {
         plaintextField = new JTextField();
         add(plaintextField);
         
-        add(new JLabel("密钥1 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥1 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         key1Field = new JTextField();
         add(key1Field);
         
-        add(new JLabel("密钥2 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥2 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         key2Field = new JTextField();
         add(key2Field);
         
-        add(new JLabel("密钥3 (16位 16进制):", SwingConstants.RIGHT));
+        add(new JLabel("密钥3 (16位 16进制，加密时留空自动生成):", SwingConstants.RIGHT));
         key3Field = new JTextField();
         add(key3Field);
         
@@ -68,6 +68,20 @@ public class TripleEncryptionDialog extends JDialog {
                 String inputType = (String) inputTypeComboBox.getSelectedItem();
                 String outputType = (String) outputTypeComboBox.getSelectedItem();
                 
+                // 密钥留空时用SAESDrbg生成并回填，解密时需要
+                if (key1.isEmpty()) {
+                    key1 = String.format("%04X", SAESDrbg.newKey());
+                    key1Field.setText(key1);
+                }
+                if (key2.isEmpty()) {
+                    key2 = String.format("%04X", SAESDrbg.newKey());
+                    key2Field.setText(key2);
+                }
+                if (key3.isEmpty()) {
+                    key3 = String.format("%04X", SAESDrbg.newKey());
+                    key3Field.setText(key3);
+                }
+                
                 // 验证输入
                 if (key1.length() != 4 || key2.length() != 4 || key3.length() != 4) {
                     JOptionPane.showMessageDialog(TripleEncryptionDialog.this, "请输入16位16进制密钥（4个16进制字符）");
@@ -84,12 +98,8 @@ public class TripleEncryptionDialog extends JDialog {
                 // 根据输入类型处理
                 if (inputType.equals("ASCII字符串")) {
                     // ASCII字符串处理
-                    List<Integer> blocks = SAESUtils.asciiToBlocks(plaintext);
-                    List<Integer> encryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : blocks) {
-                        encryptedBlocks.add(SAESCore.tripleEncrypt(block, key1Value, key2Value, key3Value));
-                    }
+                    List<Integer> blocks = SAESUtils.textToBlocks(plaintext);
+                    List<Integer> encryptedBlocks = SAESUtils.tripleEncryptECB(blocks, key1Value, key2Value, key3Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -105,7 +115,7 @@ public class TripleEncryptionDialog extends JDialog {
                     }
                     
                     int plaintextValue = Integer.parseInt(plaintext, 16);
-                    int ciphertextValue = SAESCore.tripleEncrypt(plaintextValue, key1Value, key2Value, key3Value);
+                    int ciphertextValue = SAESUtils.tripleEncrypt(plaintextValue, key1Value, key2Value, key3Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
@@ -158,15 +168,11 @@ public class TripleEncryptionDialog extends JDialog {
                 if (inputType.equals("ASCII字符串")) {
                     // 输入是ASCII字符串
                     List<Integer> encryptedBlocks = SAESUtils.asciiToBlocks(ciphertext);
-                    List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                    
-                    for (Integer block : encryptedBlocks) {
-                        decryptedBlocks.add(SAESCore.tripleDecrypt(block, key1Value, key2Value, key3Value));
-                    }
+                    List<Integer> decryptedBlocks = SAESUtils.tripleDecryptECB(encryptedBlocks, key1Value, key2Value, key3Value);
                     
                     // 根据输出类型格式化结果
                     if (outputType.equals("ASCII字符串")) {
-                        result = SAESUtils.blocksToAscii(decryptedBlocks);
+                        result = SAESUtils.blocksToText(decryptedBlocks);
                     } else {
                         result = SAESUtils.blocksToHex(decryptedBlocks);
                     }
@@ -180,7 +186,7 @@ public class TripleEncryptionDialog extends JDialog {
                         }
                         
                         int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                        int plaintextValue = SAESCore.tripleDecrypt(ciphertextValue, key1Value, key2Value, key3Value);
+                        int plaintextValue = SAESUtils.tripleDecrypt(ciphertextValue, key1Value, key2Value, key3Value);
                         
                         // 转换为ASCII字符串
                         result = String.valueOf((char)((plaintextValue >> 8) & 0xFF)) + 
@@ -191,11 +197,7 @@ public class TripleEncryptionDialog extends JDialog {
                         if (ciphertext.length() > 4 && ciphertext.length() % 4 == 0) {
                             // 多块数据
                             List<Integer> encryptedBlocks = SAESUtils.hexToBlocks(ciphertext);
-                            List<Integer> decryptedBlocks = new java.util.ArrayList<>();
-                            
-                            for (Integer block : encryptedBlocks) {
-                                decryptedBlocks.add(SAESCore.tripleDecrypt(block, key1Value, key2Value, key3Value));
-                            }
+                            List<Integer> decryptedBlocks = SAESUtils.tripleDecryptECB(encryptedBlocks, key1Value, key2Value, key3Value);
                             
                             result = SAESUtils.blocksToHex(decryptedBlocks);
                         } else {
@@ -206,7 +208,7 @@ public class TripleEncryptionDialog extends JDialog {
                             }
                             
                             int ciphertextValue = Integer.parseInt(ciphertext, 16);
-                            int plaintextValue = SAESCore.tripleDecrypt(ciphertextValue, key1Value, key2Value, key3Value);
+                            int plaintextValue = SAESUtils.tripleDecrypt(ciphertextValue, key1Value, key2Value, key3Value);
                             
                             result = String.format("%04X", plaintextValue);
                         }